@@ -8,6 +8,12 @@ plugins {
     id("dev.flutter.flutter-gradle-plugin")
 }
 
+// Log.d calls on the capture, verification and accessibility hot paths are wrapped in
+// `if (BuildConfig.HOT_PATH_LOGS)` and compile out when it is false. Default: on for debug,
+// off for release; override either with -PhotPathLogs=true|false.
+fun hotPathLogs(default: Boolean): String =
+    (project.findProperty("hotPathLogs")?.toString()?.toBoolean() ?: default).toString()
+
 android {
     namespace = "com.navia.navia"
     compileSdk = 36
@@ -18,6 +24,10 @@ android {
         targetCompatibility = JavaVersion.VERSION_11
     }
 
+    buildFeatures {
+        buildConfig = true
+    }
+
     kotlinOptions {
         jvmTarget = JavaVersion.VERSION_11.toString()
     }
@@ -31,10 +41,15 @@ android {
         targetSdk = flutter.targetSdkVersion
         versionCode = flutter.versionCode
         versionName = flutter.versionName
+        // Release and profile builds fall back to this; debug turns it on below.
+        buildConfigField("boolean", "HOT_PATH_LOGS", hotPathLogs(false))
 
     }
 
     buildTypes {
+        debug {
+            buildConfigField("boolean", "HOT_PATH_LOGS", hotPathLogs(true))
+        }
         release {
             // TODO: Add your own signing config for the release build.
             // Signing with the debug keys for now, so `flutter run --release` works.
@@ -44,9 +59,13 @@ android {
 }
 
 dependencies {
+    implementation(project(":core"))
     implementation("ai.picovoice:porcupine-android:3.0.0")
     implementation("ai.picovoice:eagle-android:1.0.0")
     implementation("com.google.mlkit:barcode-scanning:17.3.0")
+    implementation("androidx.camera:camera-camera2:1.3.4")
+    implementation("androidx.camera:camera-lifecycle:1.3.4")
+    implementation("com.squareup.okhttp3:okhttp:4.12.0")
 }
 
 flutter {
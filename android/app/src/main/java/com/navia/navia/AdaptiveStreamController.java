@@ -0,0 +1,184 @@
+package com.navia.navia;
+
+/**
+ * Picks frame rate, JPEG quality and output width for the guidance stream from the
+ * measured round trip (frame seq sent to the matching guidance message) and uplink
+ * back-pressure.
+ *
+ * The three knobs move together along a ladder from best (max fps, max quality, full width)
+ * to cheapest, one step at a time with hysteresis: down when the smoothed RTT is well over
+ * the target or the socket backed up, up only after the link has been comfortably fast for
+ * a while. When the scene is static or the server reports ready, the stream drops to
+ * {@code idleFps} until something changes. All methods are thread-safe.
+ */
+public final class AdaptiveStreamController {
+    private static final int LADDER_STEPS = 6;
+    private static final int[] WIDTH_LEVELS = {0, 960, 640}; // 0 = full analysis width
+    private static final double RTT_ALPHA = 0.2;
+    private static final long ADJUST_INTERVAL_MS = 1000;
+    private static final long UPGRADE_STABLE_MS = 3000;
+    private static final long STATIC_SCENE_MS = 1500;
+    // Mean absolute luma difference (0-255) against the last changed grid that counts as
+    // motion. Sensor noise and auto-exposure hunting stay well below it.
+    private static final int SCENE_CHANGE_MAD = 6;
+    private static final long OUTSTANDING_TIMEOUT_MS = 5000;
+    private static final int OUTSTANDING_SLOTS = 32;
+
+    private final long targetLatencyMs;
+    private final int idleFps;
+    private final int[] ladderFps = new int[LADDER_STEPS];
+    private final int[] ladderQuality = new int[LADDER_STEPS];
+    private final int[] ladderWidth = new int[LADDER_STEPS];
+
+    // Frames in flight, oldest first, so servers that do not echo seq can still be matched.
+    private final int[] outstandingSeq = new int[OUTSTANDING_SLOTS];
+    private final long[] outstandingSentMs = new long[OUTSTANDING_SLOTS];
+    private int outstandingHead = 0;
+    private int outstandingCount = 0;
+
+    private int level = 0;
+    private double smoothedRttMs = -1;
+    private boolean backpressureSinceAdjust = false;
+    private long lastAdjustMs = 0;
+    private long lastChangeMs = 0;
+
+    private boolean serverReady = false;
+    private byte[] referenceGrid;
+    private long sceneChangedMs = 0;
+
+    public AdaptiveStreamController(long targetLatencyMs, int maxFps, int minFps, int idleFps,
+                                    int maxQuality, int minQuality) {
+        this.targetLatencyMs = targetLatencyMs;
+        this.idleFps = idleFps;
+        for (int i = 0; i < LADDER_STEPS; i++) {
+            double t = (double) i / (LADDER_STEPS - 1);
+            ladderFps[i] = (int) Math.round(maxFps - t * (maxFps - minFps));
+            ladderQuality[i] = (int) Math.round(maxQuality - t * (maxQuality - minQuality));
+            ladderWidth[i] = WIDTH_LEVELS[Math.min(WIDTH_LEVELS.length - 1, i * WIDTH_LEVELS.length / LADDER_STEPS)];
+        }
+    }
+
+    public synchronized void onFrameSent(int seq, long nowMs) {
+        if (outstandingCount == OUTSTANDING_SLOTS) {
+            // أقدم إطار لم يصل رده؛ نتخلى عنه.
+            outstandingHead = (outstandingHead + 1) % OUTSTANDING_SLOTS;
+            outstandingCount--;
+        }
+        int tail = (outstandingHead + outstandingCount) % OUTSTANDING_SLOTS;
+        outstandingSeq[tail] = seq;
+        outstandingSentMs[tail] = nowMs;
+        outstandingCount++;
+    }
+
+    /** @param seq the echoed frame seq, or a negative value if the server does not echo it */
+    public synchronized void onGuidance(int seq, boolean ready, long nowMs) {
+        serverReady = ready;
+        long sentMs = takeOutstanding(seq, nowMs);
+        if (sentMs >= 0) {
+            long rtt = nowMs - sentMs;
+            smoothedRttMs = smoothedRttMs < 0 ? rtt : smoothedRttMs + RTT_ALPHA * (rtt - smoothedRttMs);
+        }
+        maybeAdjust(nowMs);
+    }
+
+    public synchronized void onBackpressure(long nowMs) {
+        backpressureSinceAdjust = true;
+        maybeAdjust(nowMs);
+    }
+
+    /**
+     * Feeds a coarse luma grid of the current camera frame for static-scene detection. The
+     * grid is compared with the one from the last detected change, so slow pans still add
+     * up to a change. The caller may reuse {@code grid} after this returns.
+     */
+    public synchronized void onSceneSample(byte[] grid, long nowMs) {
+        if (referenceGrid == null || referenceGrid.length != grid.length) {
+            referenceGrid = grid.clone();
+            sceneChangedMs = nowMs;
+            return;
+        }
+        if (meanAbsoluteDifference(grid, referenceGrid) > SCENE_CHANGE_MAD) {
+            System.arraycopy(grid, 0, referenceGrid, 0, grid.length);
+            sceneChangedMs = nowMs;
+        }
+    }
+
+    private static int meanAbsoluteDifference(byte[] a, byte[] b) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+        return (int) (sum / a.length);
+    }
+
+    public synchronized boolean isIdle(long nowMs) {
+        return serverReady || (sceneChangedMs != 0 && nowMs - sceneChangedMs >= STATIC_SCENE_MS);
+    }
+
+    public synchronized int getFps(long nowMs) {
+        return isIdle(nowMs) ? Math.min(idleFps, ladderFps[level]) : ladderFps[level];
+    }
+
+    public synchronized int getQuality() {
+        return ladderQuality[level];
+    }
+
+    public synchronized int getMaxWidth() {
+        return ladderWidth[level];
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    public synchronized long getSmoothedRttMs() {
+        return Math.round(smoothedRttMs);
+    }
+
+    private long takeOutstanding(int seq, long nowMs) {
+        // Frames the server never answered only skew the estimate; drop them.
+        while (outstandingCount > 0 && nowMs - outstandingSentMs[outstandingHead] > OUTSTANDING_TIMEOUT_MS) {
+            outstandingHead = (outstandingHead + 1) % OUTSTANDING_SLOTS;
+            outstandingCount--;
+        }
+        if (outstandingCount == 0) return -1;
+        if (seq < 0) {
+            long sent = outstandingSentMs[outstandingHead];
+            outstandingHead = (outstandingHead + 1) % OUTSTANDING_SLOTS;
+            outstandingCount--;
+            return sent;
+        }
+        for (int i = 0; i < outstandingCount; i++) {
+            int slot = (outstandingHead + i) % OUTSTANDING_SLOTS;
+            if (outstandingSeq[slot] == seq) {
+                long sent = outstandingSentMs[slot];
+                // Everything before the answered frame is either answered or lost.
+                outstandingHead = (slot + 1) % OUTSTANDING_SLOTS;
+                outstandingCount -= i + 1;
+                return sent;
+            }
+        }
+        return -1;
+    }
+
+    private void maybeAdjust(long nowMs) {
+        if (nowMs - lastAdjustMs < ADJUST_INTERVAL_MS) return;
+        lastAdjustMs = nowMs;
+        boolean slow = smoothedRttMs > targetLatencyMs * 1.25;
+        boolean fast = smoothedRttMs >= 0 && smoothedRttMs < targetLatencyMs * 0.6;
+        if ((slow || backpressureSinceAdjust) && level < LADDER_STEPS - 1) {
+            level++;
+            lastChangeMs = nowMs;
+        } else if (fast && !backpressureSinceAdjust && level > 0 && nowMs - lastChangeMs >= UPGRADE_STABLE_MS) {
+            level--;
+            lastChangeMs = nowMs;
+        }
+        backpressureSinceAdjust = false;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "level=" + level + ", rtt=" + getSmoothedRttMs() + "ms, fps=" + ladderFps[level]
+                + ", quality=" + ladderQuality[level] + ", maxWidth=" + ladderWidth[level];
+    }
+}
@@ -1,9 +1,12 @@
 package com.navia.navia;
 
 import android.accessibilityservice.AccessibilityService;
+import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Intent;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
@@ -18,12 +21,34 @@ public class AutoOpenAccessibilityService extends AccessibilityService {
     private static MethodChannel connectivityChannel;
     private Handler handler = new Handler(Looper.getMainLooper());
 
+    // Debounce for content changes, shorter one for a new window, and a cap per burst of events.
+    private static final long CONTENT_DEBOUNCE_MS = 150;
+    private static final long WINDOW_DEBOUNCE_MS = 50;
+    private static final long MAX_SCAN_DELAY_MS = 300;
+    private HandlerThread scanThread;
+    private CoalescingScanScheduler scanScheduler;
+
     // Session management
     private enum Phase {IDLE, NAVIGATING}
 
     private volatile boolean sessionActive = false;
     private volatile Phase phase = Phase.IDLE;
     private long sessionDeadlineMs = 0;
+    private static final long SESSION_TIMEOUT_MS = 20_000;
+    // للمقاييس: بداية الجلسة وعدد الفحوص فيها (تزاد على خيط الفحص فقط).
+    private volatile long sessionStartMs = 0;
+    private volatile int sessionScans = 0;
+
+    // الاشتراك في الأحداث يتغير وقت التشغيل: لا شيء تقريباً خارج الجلسة، والإعدادات فقط أثناءها.
+    private static final String SETTINGS_PACKAGE = "com.android.settings";
+    private static final int SESSION_EVENT_TYPES =
+            AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED;
+    private static final long SESSION_NOTIFICATION_TIMEOUT_MS = 50;
+    private final Runnable sessionTimeout = () -> {
+        if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "session timeout -> stop");
+        NoorMetrics.A11Y_SESSION_TIMEOUTS.inc();
+        stopSession();
+    };
 
 
     public static AutoOpenAccessibilityService getInstance() {
@@ -46,158 +71,249 @@ public class AutoOpenAccessibilityService extends AccessibilityService {
     }
 
     private void startSession() {
+        NoorMetrics.A11Y_SESSIONS.inc();
+        sessionStartMs = SystemClock.uptimeMillis();
+        sessionScans = 0;
         sessionActive = true;
         phase = Phase.NAVIGATING;
-        sessionDeadlineMs = System.currentTimeMillis() + 20_000; // 20 second timeout
+        sessionDeadlineMs = System.currentTimeMillis() + SESSION_TIMEOUT_MS;
+        // The session may end without any Settings event arriving, so time it out on the handler too.
+        handler.removeCallbacks(sessionTimeout);
+        handler.postDelayed(sessionTimeout, SESSION_TIMEOUT_MS);
+        applySubscription(true);
         Log.d("A11y", "Connectivity session started");
     }
 
     private void stopSession() {
+        if (sessionActive) {
+            NoorMetrics.A11Y_SCANS_PER_SESSION.record(sessionScans);
+        }
         sessionActive = false;
         phase = Phase.IDLE;
         handler.removeCallbacksAndMessages(null);
-        Log.d("A11y", "Connectivity session stopped");
+        applySubscription(false);
+        if (scanScheduler != null) {
+            scanScheduler.cancel();
+            Log.d("A11y", "Connectivity session stopped (" + scanScheduler + ")");
+        } else {
+            Log.d("A11y", "Connectivity session stopped");
+        }
+    }
+
+    /**
+     * Moves event filtering into the system server: while idle the service subscribes to no
+     * event types, during a session only to window changes from Settings.
+     */
+    private void applySubscription(boolean active) {
+        AccessibilityServiceInfo info = getServiceInfo();
+        if (info == null) return; // Not connected yet
+        if (active) {
+            info.eventTypes = SESSION_EVENT_TYPES;
+            info.packageNames = new String[]{SETTINGS_PACKAGE};
+            info.notificationTimeout = SESSION_NOTIFICATION_TIMEOUT_MS;
+        } else {
+            info.eventTypes = 0;
+            // Keep a package filter as well so nothing slips through while the update lands.
+            info.packageNames = new String[]{getPackageName()};
+            info.notificationTimeout = SESSION_NOTIFICATION_TIMEOUT_MS;
+        }
+        setServiceInfo(info);
+        Log.d("A11y", "Event subscription " + (active ? "narrowed to Settings" : "idle"));
     }
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
         // Session management - do nothing if no active session
         if (!sessionActive) return;
+        NoorMetrics.A11Y_EVENTS.inc();
         if (System.currentTimeMillis() > sessionDeadlineMs) {
-            Log.d("A11y", "session timeout -> stop");
+            if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "session timeout -> stop");
+            NoorMetrics.A11Y_SESSION_TIMEOUTS.inc();
             stopSession();
             return;
         }
 
-        String pkg = event.getPackageName() == null ? "" : event.getPackageName().toString();
-
-        // Only proceed for Settings app - strict boundary
-        if (!pkg.contains("com.android.settings")) {
-            return; // Ignore everything outside Settings
+        // The system already filters by package; this only guards events queued before the
+        // subscription changed.
+        CharSequence pkg = event.getPackageName();
+        if (pkg == null || !SETTINGS_PACKAGE.contentEquals(pkg)) {
+            return;
         }
 
         // Route by phase
-        if (phase == Phase.NAVIGATING && (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED ||
-                event.getEventType() == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED)) {
-
-            handler.postDelayed(() -> {
-                AccessibilityNodeInfo root = getRootInActiveWindow();
-                if (root == null) return;
-                try {
-                    Log.d("A11y", "Phase NAVIGATING: Attempting to click connected Wi-Fi row...");
-                    clickConnectedRowIfFound(root);
-                } finally {
-                    if (root != null) root.recycle();
-                }
-            }, 300); // Small debounce after content changes
+        // كل الأحداث المتتالية تندمج في فحص واحد معلق للشجرة بدلاً من فحص لكل حدث.
+        if (phase == Phase.NAVIGATING && scanScheduler != null) {
+            if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+                scanScheduler.onEvent(WINDOW_DEBOUNCE_MS);
+            } else if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED) {
+                scanScheduler.onEvent(CONTENT_DEBOUNCE_MS);
+            }
+        }
+    }
+
+    // Runs on scanThread, off the main looper.
+    private void scanActiveWindow() {
+        if (!sessionActive || phase != Phase.NAVIGATING) return;
+        AccessibilityNodeInfo root = getRootInActiveWindow();
+        if (root == null) return;
+        NoorMetrics.A11Y_SCANS.inc();
+        sessionScans++;
+        try {
+            if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "Phase NAVIGATING: Attempting to click connected Wi-Fi row...");
+            WakeTrace.begin("Noor.a11y.scan");
+            clickConnectedRowIfFound(root);
+        } finally {
+            WakeTrace.end();
+            root.recycle();
         }
     }
 
 
-    private boolean isSectionHeader(CharSequence text) {
-        if (text == null) return false;
-        String s = text.toString();
-        return s.contains("بالشبكة اللاسلكية"); // Arabic header: "connected to the wireless network"
+    // حدود الفحص: لا نزور أكثر من هذا العدد من العقد ولا ننزل أعمق من هذا المستوى.
+    private static final int MAX_SCAN_NODES = 600;
+    private static final int MAX_SCAN_DEPTH = 30;
+    private static final int MAX_CLICKABLE_ANCESTOR_DISTANCE = 10;
+
+    private final ConnectedRowMatcher connectedRowMatcher = new ConnectedRowMatcher();
+    // يستخدم على خيط الفحص فقط.
+    private final ConnectedRowScanner<AccessibilityNodeInfo> rowScanner = new ConnectedRowScanner<>(
+            NODE_ADAPTER, connectedRowMatcher, MAX_SCAN_NODES, MAX_SCAN_DEPTH, MAX_CLICKABLE_ANCESTOR_DISTANCE);
+    private WifiRowResolverCache resolverCache;
+    // ما تعلمه آخر فحص كامل (خيط الفحص فقط): معرف العقدة المطابقة وبعد الأب القابل للنقر.
+    private String lastMatchViewId;
+    private int lastMatchDistance = -1;
+
+    /**
+     * Fast path: looks up the learned view ID directly and climbs the learned number of
+     * parents. Returns null on any miss so the caller falls back to the full scan.
+     */
+    private AccessibilityNodeInfo resolveFromCache(AccessibilityNodeInfo root) {
+        if (resolverCache == null) return null;
+        String viewId = resolverCache.getViewId();
+        if (viewId == null) return null;
+        int distance = resolverCache.getAncestorDistance();
+
+        List<AccessibilityNodeInfo> nodes = root.findAccessibilityNodeInfosByViewId(viewId);
+        AccessibilityNodeInfo clickable = null;
+        for (AccessibilityNodeInfo node : nodes) {
+            if (clickable == null && connectedRowMatcher.matches(node.getText(), node.getContentDescription(), viewId)) {
+                clickable = climbToClickable(node, distance);
+            }
+            node.recycle();
+        }
+        if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "Resolver cache " + (clickable != null ? "hit" : "miss") + " for " + viewId);
+        (clickable != null ? NoorMetrics.A11Y_CACHE_HITS : NoorMetrics.A11Y_CACHE_MISSES).inc();
+        return clickable;
     }
 
-    private AccessibilityNodeInfo findConnectedWifiNode(AccessibilityNodeInfo rootNode) {
-        Log.d("A11y", "Searching for connected Wi-Fi node...");
+    private static AccessibilityNodeInfo climbToClickable(AccessibilityNodeInfo node, int distance) {
+        AccessibilityNodeInfo current = AccessibilityNodeInfo.obtain(node);
+        for (int i = 0; i < distance; i++) {
+            AccessibilityNodeInfo parent = current.getParent();
+            current.recycle();
+            if (parent == null) return null;
+            current = parent;
+        }
+        if (current.isClickable()) {
+            return current;
+        }
+        current.recycle();
+        return null;
+    }
 
-        // First, try to find by the "متصل" text directly
-        String[] connectedTexts = {"متصل", "Connected", "Connected, secured", "متصل، محمي"};
+    /**
+     * One bounded depth-first pass over the window; the walk and matching rules live in
+     * {@link ConnectedRowScanner}. The returned node, if any, is owned by the caller.
+     */
+    private AccessibilityNodeInfo findConnectedClickableRow(AccessibilityNodeInfo root) {
+        AccessibilityNodeInfo clickable = rowScanner.scan(root);
+        lastMatchViewId = rowScanner.getLastMatchViewId();
+        lastMatchDistance = rowScanner.getLastMatchDistance();
+        NoorMetrics.A11Y_SCAN_NODES.record(rowScanner.getLastVisited());
+        if (clickable != null) {
+            if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "Found clickable row after " + rowScanner.getLastVisited() + " nodes, ancestor distance: " + lastMatchDistance);
+        } else {
+            if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "No connected row after " + rowScanner.getLastVisited() + " nodes");
+        }
+        return clickable;
+    }
 
-        for (String text : connectedTexts) {
-            List<AccessibilityNodeInfo> nodes = rootNode.findAccessibilityNodeInfosByText(text);
-            Log.d("A11y", "Found " + nodes.size() + " nodes with text: " + text);
+    // يربط ConnectedRowScanner بعقد الوصول؛ كل عقدة من getChild تعاد عبر recycle.
+    private static final ConnectedRowScanner.NodeAdapter<AccessibilityNodeInfo> NODE_ADAPTER =
+            new ConnectedRowScanner.NodeAdapter<AccessibilityNodeInfo>() {
+                @Override
+                public CharSequence getText(AccessibilityNodeInfo node) {
+                    return node.getText();
+                }
 
-            for (AccessibilityNodeInfo node : nodes) {
-                if (node.getText() != null &&
-                        (node.getText().toString().contains("متصل") ||
-                                node.getText().toString().contains("Connected"))) {
+                @Override
+                public CharSequence getContentDescription(AccessibilityNodeInfo node) {
+                    return node.getContentDescription();
+                }
 
-                    // Skip section headers
-                    if (isSectionHeader(node.getText())) {
-                        Log.d("A11y", "Skipping section header: " + node.getText());
-                        continue;
-                    }
+                @Override
+                public String getViewId(AccessibilityNodeInfo node) {
+                    return node.getViewIdResourceName();
+                }
 
-                    Log.d("A11y", "Found connected node with text: " + node.getText());
-                    return node;
+                @Override
+                public int getChildCount(AccessibilityNodeInfo node) {
+                    return node.getChildCount();
                 }
-            }
-        }
 
-        // Try to find by content description
-        List<AccessibilityNodeInfo> allNodes = rootNode.findAccessibilityNodeInfosByText("");
-        Log.d("AccessibilityService", "Searching " + allNodes.size() + " nodes by content description");
+                @Override
+                public AccessibilityNodeInfo getChild(AccessibilityNodeInfo node, int index) {
+                    return node.getChild(index);
+                }
 
-        for (AccessibilityNodeInfo node : allNodes) {
-            if (node.getContentDescription() != null) {
-                String desc = node.getContentDescription().toString();
-                if (desc.contains("متصل") || desc.contains("Connected")) {
-                    Log.d("AccessibilityService", "Found connected node with description: " + desc);
-                    return node;
+                @Override
+                public boolean isClickable(AccessibilityNodeInfo node) {
+                    return node.isClickable();
                 }
-            }
-        }
 
-        return null;
-    }
+                @Override
+                public AccessibilityNodeInfo retain(AccessibilityNodeInfo node) {
+                    return AccessibilityNodeInfo.obtain(node);
+                }
+
+                @Override
+                public void release(AccessibilityNodeInfo node) {
+                    node.recycle();
+                }
+            };
 
     // الدالة المسؤولة عن البحث عن شبكة الواي فاي المتصلة والنقر عليها
     private void clickConnectedRowIfFound(AccessibilityNodeInfo root) {
         if (phase != Phase.NAVIGATING) return;
 
-        // البحث عن شبكة الواي فاي المتصلة
-        AccessibilityNodeInfo connectedNode = findConnectedWifiNode(root);
-
-        if (connectedNode != null) {
-            Log.d("A11y", "Connected WiFi node found.");
-
-            // محاولة إيجاد العنصر القابل للنقر (قد يكون الأب أو الجار)
-            AccessibilityNodeInfo clickable = findClickableParent(connectedNode);
-            if (clickable == null) {
-                clickable = findNearbyClickable(connectedNode);
-            }
-
-            if (clickable != null && clickable.performAction(AccessibilityNodeInfo.ACTION_CLICK)) {
-                Log.d("A11y", "Successfully clicked on connected WiFi row. Stopping session.");
-                // **نجاح النقر:** توقف الجلسة فوراً
-                stopSession();
-            }
+        // أولاً: البحث المباشر بمعرف العرض الذي تعلمناه على هذا الجهاز
+        boolean fromCache = true;
+        AccessibilityNodeInfo clickable = resolveFromCache(root);
+        if (clickable == null) {
+            // البحث عن صف الواي فاي المتصل والعنصر القابل للنقر في مرور واحد على الشجرة
+            fromCache = false;
+            clickable = findConnectedClickableRow(root);
         }
 
-        Log.d("A11y", "No clickable connected WiFi row found, waiting for next event.");
-    }
-
-
-    private AccessibilityNodeInfo findClickableParent(AccessibilityNodeInfo node) {
-        AccessibilityNodeInfo parent = node.getParent();
-        int depth = 0;
-        while (parent != null && depth < 10) { // Prevent infinite loops
-            if (parent.isClickable()) {
-                Log.d("AccessibilityService", "Found clickable parent at depth: " + depth);
-                return parent;
-            }
-            parent = parent.getParent();
-            depth++;
-        }
-        return null;
-    }
-
-    private AccessibilityNodeInfo findNearbyClickable(AccessibilityNodeInfo node) {
-        // Try to find siblings or nearby elements that are clickable
-        AccessibilityNodeInfo parent = node.getParent();
-        if (parent != null) {
-            for (int i = 0; i < parent.getChildCount(); i++) {
-                AccessibilityNodeInfo sibling = parent.getChild(i);
-                if (sibling != null && sibling.isClickable()) {
-                    Log.d("AccessibilityService", "Found clickable sibling");
-                    return sibling;
+        if (clickable != null) {
+            try {
+                if (clickable.performAction(AccessibilityNodeInfo.ACTION_CLICK)) {
+                    if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "Successfully clicked on connected WiFi row. Stopping session.");
+                    NoorMetrics.A11Y_CLICKS.inc();
+                    NoorMetrics.A11Y_TIME_TO_CLICK_MS.record(SystemClock.uptimeMillis() - sessionStartMs);
+                    if (!fromCache && resolverCache != null) {
+                        resolverCache.record(lastMatchViewId, lastMatchDistance);
+                    }
+                    // **نجاح النقر:** توقف الجلسة فوراً
+                    stopSession();
+                    return;
                 }
+            } finally {
+                clickable.recycle();
             }
         }
-        return null;
+
+        if (BuildConfig.HOT_PATH_LOGS) Log.d("A11y", "No clickable connected WiFi row found, waiting for next event.");
     }
 
     @Override
@@ -207,6 +323,13 @@ public class AutoOpenAccessibilityService extends AccessibilityService {
     @Override
     protected void onServiceConnected() {
         super.onServiceConnected();
+        if (scanThread == null) {
+            scanThread = new HandlerThread("A11yScan");
+            scanThread.start();
+            scanScheduler = new CoalescingScanScheduler(new Handler(scanThread.getLooper()), this::scanActiveWindow, MAX_SCAN_DELAY_MS);
+        }
+        resolverCache = new WifiRowResolverCache(this);
+        applySubscription(sessionActive);
         instance = this;
         Log.d("A11y", "Service connected");
     }
@@ -215,14 +338,24 @@ public class AutoOpenAccessibilityService extends AccessibilityService {
     public void onDestroy() {
         super.onDestroy();
         stopSession(); // Clean up session on destroy
+        if (scanThread != null) {
+            scanThread.quitSafely();
+            scanThread = null;
+        }
+        if (instance == this) instance = null;
         Log.d("A11y", "Service destroyed");
     }
 
     public static void launchApp(AutoOpenAccessibilityService service) {
         if (service != null) {
-            Intent intent = new Intent(service, MainActivity.class);
-            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-            service.startActivity(intent);
+            WakeTrace.begin("Noor.a11y.launchApp");
+            try {
+                Intent intent = new Intent(service, MainActivity.class);
+                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                service.startActivity(intent);
+            } finally {
+                WakeTrace.end();
+            }
         }
     }
 }
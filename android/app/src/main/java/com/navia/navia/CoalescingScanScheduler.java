@@ -0,0 +1,84 @@
+package com.navia.navia;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Debounces accessibility events into at most one pending tree scan.
+ *
+ * Every event pushes the pending scan back by the debounce delay, but never past
+ * {@code maxDelayMs} after the first event of the burst, so a continuously scrolling list
+ * still gets scanned. Scans run on the handler passed in, which can be a background
+ * looper so tree walks stay off the main thread.
+ */
+public final class CoalescingScanScheduler {
+    private final Handler handler;
+    private final Runnable scan;
+    private final long maxDelayMs;
+
+    private final Runnable runScan = this::runPendingScan;
+    private boolean pending = false;
+    private long burstStartMs = 0;
+    private long deadlineMs = 0;
+
+    private long eventsReceived = 0;
+    private long scansExecuted = 0;
+    private long scansCoalesced = 0;
+
+    public CoalescingScanScheduler(Handler handler, Runnable scan, long maxDelayMs) {
+        this.handler = handler;
+        this.scan = scan;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /** Requests a scan {@code debounceMs} from now, merging it with any scan already pending. */
+    public synchronized void onEvent(long debounceMs) {
+        eventsReceived++;
+        long now = SystemClock.uptimeMillis();
+        long target;
+        if (pending) {
+            scansCoalesced++;
+            // The burst cap wins over the debounce so a busy screen cannot starve the scan.
+            target = Math.min(now + debounceMs, burstStartMs + maxDelayMs);
+            if (target == deadlineMs) return;
+        } else {
+            pending = true;
+            burstStartMs = now;
+            target = now + debounceMs;
+        }
+        deadlineMs = target;
+        handler.removeCallbacks(runScan);
+        handler.postAtTime(runScan, target);
+    }
+
+    public synchronized void cancel() {
+        pending = false;
+        handler.removeCallbacks(runScan);
+    }
+
+    private void runPendingScan() {
+        synchronized (this) {
+            if (!pending) return;
+            pending = false;
+            scansExecuted++;
+        }
+        scan.run();
+    }
+
+    public synchronized long getEventsReceived() {
+        return eventsReceived;
+    }
+
+    public synchronized long getScansExecuted() {
+        return scansExecuted;
+    }
+
+    public synchronized long getScansCoalesced() {
+        return scansCoalesced;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "events=" + eventsReceived + ", scans=" + scansExecuted + ", coalesced=" + scansCoalesced;
+    }
+}
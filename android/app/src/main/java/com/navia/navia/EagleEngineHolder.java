@@ -0,0 +1,254 @@
+package com.navia.navia;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ai.picovoice.eagle.Eagle;
+import ai.picovoice.eagle.EagleException;
+import ai.picovoice.eagle.EagleProfile;
+import ai.picovoice.eagle.EagleProfiler;
+
+/**
+ * Process-wide owner of the native Eagle engines used for verification and enrollment.
+ *
+ * Engines are built ahead of time on a background thread and leased out with
+ * {@link #acquire()} / {@link #release(Eagle)}, so the first wake after boot or after
+ * re-enrollment does not pay the model load on the critical path. Eagle takes its speaker
+ * profiles at build time, so {@link #setSpeakerProfiles(EagleProfile[])} bumps a generation
+ * and warms replacement engines in the background; stale engines are deleted as they come
+ * back. The EagleProfiler is kept warm the same way and reset between enrollments.
+ */
+public final class EagleEngineHolder {
+    private static final String TAG = "EagleEngineHolder";
+    private static final int MAX_IDLE_ENGINES = 2;
+
+    private static EagleEngineHolder instance;
+
+    private final Context appContext;
+    private final ExecutorService warmer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "EagleWarmer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private String accessKey;
+    // كل المتحدثين المسجلين على الجهاز؛ Eagle يعيد درجة لكل واحد منهم.
+    private EagleProfile[] speakerProfiles;
+    private volatile int generation = 0;
+    private final ArrayDeque<Eagle> idleEngines = new ArrayDeque<>();
+    private final IdentityHashMap<Eagle, Integer> leasedEngines = new IdentityHashMap<>();
+    private EagleProfiler idleProfiler;
+
+    private EagleEngineHolder(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static synchronized EagleEngineHolder getInstance(Context context) {
+        if (instance == null) {
+            instance = new EagleEngineHolder(context);
+        }
+        return instance;
+    }
+
+    public synchronized void setAccessKey(String key) {
+        if (key == null || key.equals(accessKey)) return;
+        if (accessKey != null) {
+            // مفتاح جديد يعني محركات جديدة؛ المحركات المؤجرة تحذف عند إعادتها.
+            generation++;
+            deleteIdleEngines();
+            deleteIdleProfiler();
+        }
+        accessKey = key;
+    }
+
+    public synchronized boolean hasSpeakerProfiles() {
+        return speakerProfiles != null;
+    }
+
+    /** Swaps the enrolled speakers. Pass null or an empty array when enrollment is reset. */
+    public synchronized void setSpeakerProfiles(EagleProfile[] profiles) {
+        if (profiles != null && profiles.length == 0) profiles = null;
+        if (sameProfiles(profiles, speakerProfiles)) return;
+        speakerProfiles = profiles;
+        generation++;
+        deleteIdleEngines();
+        Log.d(TAG, "Speaker profiles swapped (" + (profiles == null ? 0 : profiles.length) + "), generation " + generation);
+        if (profiles != null) {
+            preload();
+        }
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public synchronized int generationOf(Eagle eagle) {
+        Integer g = leasedEngines.get(eagle);
+        return g == null ? -1 : g;
+    }
+
+    /** Builds idle engines for the current profile in the background. */
+    public void preload() {
+        warmer.execute(() -> {
+            while (true) {
+                String key;
+                EagleProfile[] profiles;
+                int gen;
+                synchronized (this) {
+                    if (accessKey == null || speakerProfiles == null || idleEngines.size() >= MAX_IDLE_ENGINES) {
+                        return;
+                    }
+                    key = accessKey;
+                    profiles = speakerProfiles;
+                    gen = generation;
+                }
+                Eagle eagle;
+                try {
+                    eagle = build(key, profiles);
+                } catch (EagleException e) {
+                    Log.e(TAG, "Failed to preload Eagle: " + e.getMessage(), e);
+                    return;
+                }
+                synchronized (this) {
+                    if (gen != generation) {
+                        eagle.delete();
+                        continue;
+                    }
+                    idleEngines.push(eagle);
+                    Log.d(TAG, "Eagle preloaded, idle engines: " + idleEngines.size());
+                }
+            }
+        });
+    }
+
+    /** Returns a warm engine for the current profile, or null if none is ready. Never builds. */
+    public synchronized Eagle tryAcquireWarm() {
+        Eagle eagle = idleEngines.poll();
+        if (eagle != null) {
+            leasedEngines.put(eagle, generation);
+        }
+        return eagle;
+    }
+
+    /** Returns a warm engine, building one synchronously if the pool is empty. */
+    public Eagle acquire() throws EagleException {
+        String key;
+        EagleProfile[] profiles;
+        int gen;
+        synchronized (this) {
+            Eagle warm = tryAcquireWarm();
+            if (warm != null) {
+                return warm;
+            }
+            if (accessKey == null || speakerProfiles == null) {
+                throw new EagleException("Eagle engine requested without access key or speaker profile");
+            }
+            key = accessKey;
+            profiles = speakerProfiles;
+            gen = generation;
+        }
+        Log.d(TAG, "No warm Eagle available, building on demand");
+        Eagle eagle = build(key, profiles);
+        synchronized (this) {
+            leasedEngines.put(eagle, gen);
+        }
+        return eagle;
+    }
+
+    /** Returns a leased engine. Engines from an older generation are deleted. */
+    public synchronized void release(Eagle eagle) {
+        if (eagle == null) return;
+        Integer gen = leasedEngines.remove(eagle);
+        if (gen != null && gen == generation && idleEngines.size() < MAX_IDLE_ENGINES) {
+            try {
+                eagle.reset();
+                idleEngines.push(eagle);
+                return;
+            } catch (EagleException e) {
+                Log.e(TAG, "Failed to reset Eagle, deleting: " + e.getMessage(), e);
+            }
+        }
+        eagle.delete();
+    }
+
+    /** Returns the warm profiler, reset for a new enrollment, or builds one. */
+    public EagleProfiler acquireProfiler() throws EagleException {
+        String key;
+        synchronized (this) {
+            EagleProfiler profiler = idleProfiler;
+            idleProfiler = null;
+            if (profiler != null) {
+                profiler.reset();
+                return profiler;
+            }
+            key = accessKey;
+        }
+        if (key == null) {
+            throw new EagleException("EagleProfiler requested without access key");
+        }
+        return new EagleProfiler.Builder()
+                .setAccessKey(key)
+                .build(appContext);
+    }
+
+    public synchronized void releaseProfiler(EagleProfiler profiler) {
+        if (profiler == null) return;
+        if (idleProfiler == null) {
+            idleProfiler = profiler;
+        } else {
+            profiler.delete();
+        }
+    }
+
+    /** Called from onTrimMemory: drops idle native engines, leased ones stay alive. */
+    public void onTrimMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // الواجهة مخفية فقط؛ هذا بالضبط الوقت الذي تحتاج فيه الخدمة إلى محرك دافئ.
+            return;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            synchronized (this) {
+                deleteIdleEngines();
+                deleteIdleProfiler();
+            }
+            Log.d(TAG, "Released idle Eagle engines (trim level " + level + ")");
+        }
+    }
+
+    private Eagle build(String key, EagleProfile[] profiles) throws EagleException {
+        return new Eagle.Builder()
+                .setAccessKey(key)
+                .setSpeakerProfiles(profiles)
+                .build(appContext);
+    }
+
+    private static boolean sameProfiles(EagleProfile[] a, EagleProfile[] b) {
+        if (a == b) return true;
+        if (a == null || b == null || a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (!Arrays.equals(a[i].getBytes(), b[i].getBytes())) return false;
+        }
+        return true;
+    }
+
+    private void deleteIdleEngines() {
+        Eagle eagle;
+        while ((eagle = idleEngines.poll()) != null) {
+            eagle.delete();
+        }
+    }
+
+    private void deleteIdleProfiler() {
+        if (idleProfiler != null) {
+            idleProfiler.delete();
+            idleProfiler = null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.navia.navia;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Audio and haptic cues for the navia/feedback channel.
+ *
+ * Every cue is synthesized once into PCM at the device's native output rate and loaded
+ * into its own static-mode AudioTrack, so playing a cue is a rewind and play on the
+ * dedicated audio thread, with no synthesis, buffering or resampling on the way. Cues
+ * have fixed lengths and separate tracks, so one cue no longer cuts another off.
+ * Calls only post to the audio thread and return immediately.
+ */
+public final class FeedbackEngine {
+    private static final String TAG = "FeedbackEngine";
+    private static final int FADE_MS = 5;
+
+    public static final String CUE_SUCCESS = "success";
+    public static final String CUE_FAILURE = "failure";
+    public static final String CUE_LOADING = "loading";
+    public static final String CUE_WAITING = "waiting";
+    public static final String CUE_TICK = "tick";
+
+    // كل نغمة سلسلة من (التردد بالهرتز، المدة بالمللي ثانية)؛ التردد 0 يعني صمتاً.
+    private static final Map<String, int[]> CUE_SHAPES = new HashMap<>();
+    // أنماط الاهتزاز: انتظار، اهتزاز، انتظار، اهتزاز... بالمللي ثانية.
+    private static final Map<String, long[]> VIBRATION_PATTERNS = new HashMap<>();
+
+    static {
+        CUE_SHAPES.put(CUE_SUCCESS, new int[]{880, 80, 1320, 120});
+        CUE_SHAPES.put(CUE_FAILURE, new int[]{440, 150, 330, 200});
+        CUE_SHAPES.put(CUE_LOADING, new int[]{660, 60});
+        CUE_SHAPES.put(CUE_WAITING, new int[]{523, 100, 0, 60, 523, 100});
+        CUE_SHAPES.put(CUE_TICK, new int[]{1000, 25});
+
+        VIBRATION_PATTERNS.put(CUE_SUCCESS, new long[]{0, 30, 60, 30});
+        VIBRATION_PATTERNS.put(CUE_FAILURE, new long[]{0, 80, 80, 80});
+        VIBRATION_PATTERNS.put(CUE_TICK, new long[]{0, 20});
+        VIBRATION_PATTERNS.put("warning", new long[]{0, 200});
+    }
+
+    private final HandlerThread audioThread;
+    private final Handler audioHandler;
+    private final Vibrator vibrator;
+    private final Map<String, AudioTrack> tracks = new HashMap<>();
+    private final Map<String, Integer> durationsMs = new HashMap<>();
+
+    public FeedbackEngine(Context context) {
+        Context appContext = context.getApplicationContext();
+        vibrator = (Vibrator) appContext.getSystemService(Context.VIBRATOR_SERVICE);
+        audioThread = new HandlerThread("FeedbackAudio", Process.THREAD_PRIORITY_URGENT_AUDIO);
+        audioThread.start();
+        audioHandler = new Handler(audioThread.getLooper());
+        // The cues are built on the audio thread, so constructing the engine costs nothing up front.
+        audioHandler.post(() -> loadCues(appContext));
+    }
+
+    public void play(String cue) {
+        audioHandler.post(() -> playNow(cue));
+    }
+
+    public void vibrate(String pattern) {
+        long[] timings = VIBRATION_PATTERNS.get(pattern);
+        if (timings != null) vibrate(timings);
+    }
+
+    public void vibrate(long[] timings) {
+        audioHandler.post(() -> vibrateNow(timings));
+    }
+
+    /**
+     * Plays a batch of steps back to back. Each step may name a cue, a vibration pattern and
+     * an extra pause in ms ({@code cue}, {@code vibration}, {@code pauseMs}); the next step
+     * starts when the previous cue ends.
+     */
+    public void playSequence(List<Map<String, Object>> steps) {
+        audioHandler.post(() -> {
+            long offset = 0;
+            for (Map<String, Object> step : steps) {
+                String cue = (String) step.get("cue");
+                String vibration = (String) step.get("vibration");
+                Object pause = step.get("pauseMs");
+                audioHandler.postDelayed(() -> {
+                    if (cue != null) playNow(cue);
+                    if (vibration != null && VIBRATION_PATTERNS.containsKey(vibration)) {
+                        vibrateNow(VIBRATION_PATTERNS.get(vibration));
+                    }
+                }, offset);
+                Integer duration = cue != null ? durationsMs.get(cue) : null;
+                offset += (duration != null ? duration : 0) + (pause instanceof Number ? ((Number) pause).longValue() : 0);
+            }
+        });
+    }
+
+    public void release() {
+        audioHandler.removeCallbacksAndMessages(null);
+        audioHandler.post(() -> {
+            for (AudioTrack track : tracks.values()) {
+                track.release();
+            }
+            tracks.clear();
+            audioThread.quitSafely();
+        });
+    }
+
+    private void playNow(String cue) {
+        AudioTrack track = tracks.get(cue);
+        if (track == null) {
+            Log.w(TAG, "Unknown cue: " + cue);
+            return;
+        }
+        try {
+            // Static tracks replay from the start after stop() + reloadStaticData().
+            if (track.getPlayState() != AudioTrack.PLAYSTATE_STOPPED) {
+                track.stop();
+            }
+            track.reloadStaticData();
+            track.play();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Failed to play cue " + cue + ": " + e.getMessage());
+        }
+    }
+
+    private void vibrateNow(long[] timings) {
+        if (vibrator == null || !vibrator.hasVibrator()) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            vibrator.vibrate(VibrationEffect.createWaveform(timings, -1));
+        } else {
+            vibrator.vibrate(timings, -1);
+        }
+    }
+
+    private void loadCues(Context context) {
+        int sampleRate = nativeSampleRate(context);
+        for (Map.Entry<String, int[]> cue : CUE_SHAPES.entrySet()) {
+            short[] pcm = synthesize(cue.getValue(), sampleRate);
+            AudioTrack track = buildStaticTrack(pcm, sampleRate);
+            if (track != null) {
+                tracks.put(cue.getKey(), track);
+                durationsMs.put(cue.getKey(), pcm.length * 1000 / sampleRate);
+            }
+        }
+        Log.d(TAG, "Loaded " + tracks.size() + " cues at " + sampleRate + " Hz");
+    }
+
+    private static AudioTrack buildStaticTrack(short[] pcm, int sampleRate) {
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setSampleRate(sampleRate)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STATIC)
+                .setBufferSizeInBytes(pcm.length * 2);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        try {
+            AudioTrack track = builder.build();
+            track.write(pcm, 0, pcm.length);
+            return track;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to build cue track: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Sine segments with a short fade in and out on each, so cues never click. */
+    static short[] synthesize(int[] shape, int sampleRate) {
+        int total = 0;
+        for (int i = 1; i < shape.length; i += 2) {
+            total += shape[i] * sampleRate / 1000;
+        }
+        short[] pcm = new short[total];
+        int fade = FADE_MS * sampleRate / 1000;
+        int offset = 0;
+        for (int i = 0; i < shape.length; i += 2) {
+            int frequency = shape[i];
+            int length = shape[i + 1] * sampleRate / 1000;
+            if (frequency > 0) {
+                double step = 2 * Math.PI * frequency / sampleRate;
+                for (int n = 0; n < length; n++) {
+                    double envelope = Math.min(1.0, Math.min(n, length - 1 - n) / (double) fade);
+                    pcm[offset + n] = (short) (Math.sin(step * n) * envelope * 0.6 * Short.MAX_VALUE);
+                }
+            }
+            offset += length;
+        }
+        return pcm;
+    }
+
+    private static int nativeSampleRate(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        String rate = audioManager != null ? audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE) : null;
+        try {
+            return rate != null ? Integer.parseInt(rate) : 48000;
+        } catch (NumberFormatException e) {
+            return 48000;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.navia.navia;
+
+import android.content.Context;
+import android.graphics.SurfaceTexture;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+import android.view.Surface;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.Camera;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.view.TextureRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * Streams the back camera to the guidance server without frames ever crossing into Dart.
+ *
+ * CameraX feeds a Flutter texture for the preview and an ImageAnalysis stream at the
+ * configured analysis resolution. Frames are encoded with {@link YuvJpegEncoder} on the
+ * analysis thread and sent over an OkHttp WebSocket as one binary message: a fixed header
+ * followed by the JPEG. Only the server's text messages (guidance results) go back to Dart.
+ *
+ * Binary frame layout (big endian, {@link #HEADER_BYTES} bytes of header):
+ * magic "NVGF", u32 seq, i64 capture time (epoch ms), u16 width, u16 height,
+ * u8 rotation applied / 90, u8 JPEG quality, then the JPEG bytes.
+ *
+ * Frame rate, JPEG quality and output width come from {@link AdaptiveStreamController},
+ * which follows the seq round trip and drops to an idle rate for static scenes.
+ *
+ * When the socket's outgoing queue is over {@link Config#maxQueuedBytes} a frame is dropped:
+ * {@link #DROP_NEWEST} skips the new frame before encoding, {@link #DROP_OLDEST} keeps only
+ * the newest encoded frame in a one-slot buffer that is flushed once the queue drains.
+ */
+public final class GuidanceStreamEngine {
+    private static final String TAG = "GuidanceStream";
+    public static final int HEADER_BYTES = 22;
+    private static final int MAGIC = 0x4E564746; // "NVGF"
+    private static final long HEARTBEAT_SECONDS = 5;
+    private static final int SCENE_GRID = 16;
+
+    public static final String DROP_NEWEST = "newest";
+    public static final String DROP_OLDEST = "oldest";
+
+    public static final class Config {
+        public String url;
+        public int analysisWidth = 1280;
+        public int analysisHeight = 720;
+        public int targetFps = 20;
+        public int minFps = 5;
+        public int idleFps = 2;
+        public int jpegQuality = 80;
+        public int minJpegQuality = 55;
+        public long targetLatencyMs = 250;
+        public boolean torch = true;
+        public String dropPolicy = DROP_NEWEST;
+        public long maxQueuedBytes = 256 * 1024;
+    }
+
+    public interface Listener {
+        void onReady(long textureId, int previewWidth, int previewHeight, int rotationDegrees);
+
+        void onGuidance(JSONObject message);
+
+        void onConnectionChanged(boolean connected);
+
+        void onError(String message);
+    }
+
+    private final Context context;
+    private final Config config;
+    private final Listener listener;
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "GuidanceAnalysis"));
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "GuidanceHeartbeat"));
+    private final YuvJpegEncoder encoder = new YuvJpegEncoder();
+    private final AdaptiveStreamController controller;
+
+    private OkHttpClient client;
+    private volatile WebSocket webSocket;
+    private volatile boolean connected = false;
+    private volatile boolean streaming = false;
+
+    private ProcessCameraProvider cameraProvider;
+    private Preview preview;
+    private ImageAnalysis analysis;
+    private TextureRegistry.SurfaceTextureEntry textureEntry;
+
+    // Owned by the analysis thread.
+    private final byte[] sceneGrid = new byte[SCENE_GRID * SCENE_GRID];
+    private byte[] yPlane;
+    private byte[] uPlane;
+    private byte[] vPlane;
+    private byte[] frame;
+    private int pendingLength = 0;
+    private int seq = 0;
+    private long lastFrameMs = 0;
+
+    private long framesSent = 0;
+    private long framesDropped = 0;
+
+    public GuidanceStreamEngine(Context context, Config config, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.config = config;
+        this.listener = listener;
+        controller = new AdaptiveStreamController(config.targetLatencyMs, config.targetFps, config.minFps,
+                config.idleFps, config.jpegQuality, config.minJpegQuality);
+    }
+
+    public void start(LifecycleOwner owner, TextureRegistry textures) {
+        connect();
+        textureEntry = textures.createSurfaceTexture();
+        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(context);
+        future.addListener(() -> {
+            try {
+                cameraProvider = future.get();
+                bindCamera(owner);
+            } catch (Exception e) {
+                Log.e(TAG, "Camera start failed: " + e.getMessage(), e);
+                listener.onError("Start failed: " + e.getMessage());
+            }
+        }, ContextCompat.getMainExecutor(context));
+    }
+
+    private void bindCamera(LifecycleOwner owner) {
+        preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(ContextCompat.getMainExecutor(context), request -> {
+            Size resolution = request.getResolution();
+            SurfaceTexture surfaceTexture = textureEntry.surfaceTexture();
+            surfaceTexture.setDefaultBufferSize(resolution.getWidth(), resolution.getHeight());
+            Surface surface = new Surface(surfaceTexture);
+            request.provideSurface(surface, ContextCompat.getMainExecutor(context), r -> surface.release());
+        });
+
+        analysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(new ResolutionSelector.Builder()
+                        .setResolutionStrategy(new ResolutionStrategy(
+                                new Size(config.analysisWidth, config.analysisHeight),
+                                ResolutionStrategy.FALLBACK_RULE_CLOSEST_LOWER_THEN_HIGHER))
+                        .build())
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                .build();
+
+        cameraProvider.unbindAll();
+        Camera camera = cameraProvider.bindToLifecycle(owner, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+        if (config.torch && camera.getCameraInfo().hasFlashUnit()) {
+            camera.getCameraControl().enableTorch(true);
+        }
+        resume();
+
+        Size previewSize = preview.getResolutionInfo() != null
+                ? preview.getResolutionInfo().getResolution()
+                : new Size(config.analysisWidth, config.analysisHeight);
+        listener.onReady(textureEntry.id(), previewSize.getWidth(), previewSize.getHeight(),
+                camera.getCameraInfo().getSensorRotationDegrees());
+    }
+
+    private void connect() {
+        client = new OkHttpClient.Builder()
+                .pingInterval(HEARTBEAT_SECONDS, TimeUnit.SECONDS)
+                .build();
+        webSocket = client.newWebSocket(new Request.Builder().url(config.url).build(), new WebSocketListener() {
+            @Override
+            public void onOpen(@NonNull WebSocket ws, @NonNull Response response) {
+                connected = true;
+                listener.onConnectionChanged(true);
+            }
+
+            @Override
+            public void onMessage(@NonNull WebSocket ws, @NonNull String text) {
+                try {
+                    JSONObject message = new JSONObject(text);
+                    if ("guidance".equals(message.optString("type"))) {
+                        controller.onGuidance(message.optInt("seq", -1), message.optBoolean("ready", false),
+                                SystemClock.elapsedRealtime());
+                        listener.onGuidance(message);
+                    }
+                    // "hb" من الخادم لإبقاء الاتصال حياً فقط.
+                } catch (JSONException e) {
+                    Log.w(TAG, "Ignoring malformed server message");
+                }
+            }
+
+            @Override
+            public void onClosed(@NonNull WebSocket ws, int code, @NonNull String reason) {
+                connected = false;
+                listener.onConnectionChanged(false);
+                // stop() يصفّر webSocket قبل الإغلاق الطبيعي، فهذا ليس خطأ.
+                if (webSocket != null || code != 1000) {
+                    listener.onError("WebSocket closed (" + code + (reason.isEmpty() ? "" : ": " + reason) + ")");
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull WebSocket ws, @NonNull Throwable t, Response response) {
+                connected = false;
+                listener.onConnectionChanged(false);
+                listener.onError("WebSocket error: " + t.getMessage());
+            }
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            WebSocket ws = webSocket;
+            if (ws != null && connected) ws.send("{\"type\":\"hb\"}");
+        }, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void pause() {
+        streaming = false;
+        if (analysis != null) analysis.clearAnalyzer();
+    }
+
+    public void resume() {
+        if (analysis == null || streaming) return;
+        streaming = true;
+        analysis.setAnalyzer(analysisExecutor, this::analyze);
+    }
+
+    /** Must be called on the main thread. */
+    public void stop() {
+        pause();
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+            cameraProvider = null;
+        }
+        WebSocket ws = webSocket;
+        webSocket = null;
+        if (ws != null) ws.close(1000, "stop");
+        heartbeat.shutdownNow();
+        analysisExecutor.shutdown();
+        if (client != null) {
+            client.dispatcher().executorService().shutdown();
+        }
+        if (textureEntry != null) {
+            textureEntry.release();
+            textureEntry = null;
+        }
+        Log.d(TAG, "Stopped (sent=" + framesSent + ", dropped=" + framesDropped + ", " + controller + ")");
+    }
+
+    private void analyze(ImageProxy image) {
+        try {
+            WebSocket ws = webSocket;
+            if (!streaming || ws == null || !connected) return;
+            long now = SystemClock.elapsedRealtime();
+            // كل إطار من الكاميرا يُستخدم لكشف المشهد الثابت حتى لو لم يُرسل.
+            sampleLumaGrid(image, sceneGrid);
+            controller.onSceneSample(sceneGrid, now);
+            boolean backedUp = ws.queueSize() > config.maxQueuedBytes;
+            if (backedUp) {
+                controller.onBackpressure(now);
+            }
+            if (!backedUp && pendingLength > 0) {
+                // الإطار المحفوظ أحدث ما لدينا؛ أرسله قبل التقاط إطار جديد.
+                send(ws, pendingLength, now);
+                pendingLength = 0;
+                return;
+            }
+            if (now - lastFrameMs < 1000L / Math.max(1, controller.getFps(now))) return;
+            if (backedUp && DROP_NEWEST.equals(config.dropPolicy)) {
+                framesDropped++;
+                return;
+            }
+            lastFrameMs = now;
+            int length = encode(image);
+            if (backedUp) {
+                // DROP_OLDEST: the new frame replaces whatever was waiting.
+                if (pendingLength > 0) framesDropped++;
+                pendingLength = length;
+            } else {
+                send(ws, length, now);
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Frame failed: " + e.getMessage(), e);
+        } finally {
+            image.close();
+        }
+    }
+
+    private int encode(ImageProxy image) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        yPlane = copyPlane(planes[0].getBuffer(), yPlane);
+        uPlane = copyPlane(planes[1].getBuffer(), uPlane);
+        vPlane = copyPlane(planes[2].getBuffer(), vPlane);
+        int rotation = image.getImageInfo().getRotationDegrees();
+        int quality = controller.getQuality();
+        byte[] jpeg = encoder.encode(image.getWidth(), image.getHeight(),
+                yPlane, planes[0].getRowStride(),
+                uPlane, planes[1].getRowStride(), planes[1].getPixelStride(),
+                vPlane, planes[2].getRowStride(), planes[2].getPixelStride(),
+                quality, rotation, controller.getMaxWidth());
+
+        int length = HEADER_BYTES + jpeg.length;
+        if (frame == null || frame.length < length) {
+            frame = new byte[length + length / 4];
+        }
+        ByteBuffer header = ByteBuffer.wrap(frame, 0, HEADER_BYTES);
+        header.putInt(MAGIC)
+                .putInt(++seq)
+                .putLong(System.currentTimeMillis())
+                .putShort((short) encoder.getOutputWidth())
+                .putShort((short) encoder.getOutputHeight())
+                .put((byte) (rotation / 90))
+                .put((byte) quality);
+        System.arraycopy(jpeg, 0, frame, HEADER_BYTES, jpeg.length);
+        return length;
+    }
+
+    private void send(WebSocket ws, int length, long nowMs) {
+        if (ws.send(ByteString.of(frame, 0, length))) {
+            framesSent++;
+            controller.onFrameSent(ByteBuffer.wrap(frame, 4, 4).getInt(), nowMs);
+        }
+    }
+
+    // Sparse grid over the Y plane; the controller compares grids, not hashes, so sensor
+    // noise and small exposure shifts do not read as motion.
+    private static void sampleLumaGrid(ImageProxy image, byte[] grid) {
+        ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+        ByteBuffer y = plane.getBuffer();
+        int rowStride = plane.getRowStride();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int i = 0;
+        for (int gy = 0; gy < SCENE_GRID; gy++) {
+            int row = (gy * (height - 1) / (SCENE_GRID - 1)) * rowStride;
+            for (int gx = 0; gx < SCENE_GRID; gx++) {
+                grid[i++] = y.get(row + gx * (width - 1) / (SCENE_GRID - 1));
+            }
+        }
+    }
+
+    private static byte[] copyPlane(ByteBuffer buffer, byte[] reuse) {
+        buffer.rewind();
+        int size = buffer.remaining();
+        byte[] out = reuse != null && reuse.length >= size ? reuse : new byte[size];
+        buffer.get(out, 0, size);
+        return out;
+    }
+}
@@ -1,57 +1,148 @@
 package com.navia.navia;
 
-import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Build;
-import android.os.PowerManager;
 import android.provider.Settings;
 
-import android.text.TextUtils;
 import android.util.Log;
 import android.widget.Toast;
 
-import android.media.AudioManager;
-import android.media.ToneGenerator;
+import android.media.projection.MediaProjectionManager;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.view.Choreographer;
+import android.view.WindowManager;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 
 
 import io.flutter.embedding.android.FlutterFragmentActivity;
 import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.renderer.FlutterUiDisplayListener;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugins.GeneratedPluginRegistrant;
 
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import android.app.Activity;
 
 public class MainActivity extends FlutterFragmentActivity {
     private static final String CHANNEL = "nabd/foreground";
+    private static final String STATUS_EVENT_CHANNEL = "nabd/foreground/status";
     private static final String VOICE_ID_CHANNEL = "nabd/voiceid";
+    private static final String VOICE_PROFILE_CHANNEL = "nabd/voiceid/profile";
     private static final String CONNECTIVITY_CHANNEL = "nabd/connectivity";
+    private static final String GUIDANCE_CHANNEL = "navia/guidance";
+    private static final String METRICS_CHANNEL = "navia/metrics";
     private VoiceIdService voiceIdService;
 
-    // إضافة هذا السطر: تعريف ToneGenerator كمتغير عام للكلاس
-    private ToneGenerator toneGen;
+    // محرك التنبيهات: نغمات PCM جاهزة واهتزازات على خيط صوت مخصص.
+    // لا يُنشأ أثناء configureFlutterEngine: عند أول استخدام أو بعد أول إطار.
+    private FeedbackEngine feedbackEngine;
+
+    // تهيئة على مراحل: القنوات فوراً، والموارد الثقيلة بعد أول إطار من Flutter.
+    private boolean flutterUiDisplayed = false;
+    private final FlutterUiDisplayListener firstFrameListener = new FlutterUiDisplayListener() {
+        @Override
+        public void onFlutterUiDisplayed() {
+            flutterUiDisplayed = true;
+            // تشغيل بارد بعد كلمة التنبيه: أول إطار هو نهاية مسار الاستيقاظ.
+            WakeTrace.endWake();
+            FlutterEngine engine = getFlutterEngine();
+            if (engine != null) {
+                engine.getRenderer().removeIsDisplayingFlutterUiListener(this);
+            }
+            runDeferredStartup();
+        }
+
+        @Override
+        public void onFlutterUiNoLongerDisplayed() {
+        }
+    };
 
     private Handler mainHandler;
 
+    // حالة الأذونات والخدمات محفوظة مؤقتاً وتُحدَّث عند التغيير فقط.
+    private PermissionStatusMonitor statusMonitor;
+
 
     // Connectivity channel field
     private MethodChannel connectivityChannel;
 
+    // موافقة المستخدم على التقاط الشاشة تستخدم مرة واحدة لبدء خدمة قراءة رمز QR.
+    private static final int REQUEST_SCREEN_CAPTURE = 4201;
+    private MethodChannel.Result pendingScreenCaptureResult;
+
+    // محرك البث: الكاميرا والترميز و WebSocket كلها في Java، ونتائج التوجيه فقط تعود إلى Dart.
+    private GuidanceStreamEngine guidanceEngine;
+
     @Override
     public void configureFlutterEngine(@NonNull FlutterEngine flutterEngine) {
-        GeneratedPluginRegistrant.registerWith(flutterEngine);
+        Trace.beginSection("Noor.configureFlutterEngine");
+        try {
+            Trace.beginSection("Noor.registerPlugins");
+            GeneratedPluginRegistrant.registerWith(flutterEngine);
+            Trace.endSection();
+
+            // على الخيط الرئيسي وقبل تسجيل القنوات، فلا يمكن أن يسبق startService القادم من Dart.
+            Trace.beginSection("Noor.stopWakeWordService");
+            stopService(new Intent(this, PorcupainService.class));
+            Trace.endSection();
+
+            Trace.beginSection("Noor.registerChannels");
+            registerChannels(flutterEngine);
+            Trace.endSection();
+        } finally {
+            Trace.endSection();
+        }
+        // تحميل النغمات والملفات الصوتية ينتظر أول إطار.
+        flutterEngine.getRenderer().addIsDisplayingFlutterUiListener(firstFrameListener);
+    }
 
-        Intent stopIntent = new Intent(this, PorcupainService.class);
-        stopService(stopIntent);
+    /**
+     * Work that used to run before the first Flutter frame. The voice profile store read
+     * and the cue synthesis go to a background thread; none of it is needed to draw the
+     * splash screen or speak the welcome prompt.
+     */
+    private void runDeferredStartup() {
+        ExecutorService startup = Executors.newSingleThreadExecutor(r -> new Thread(r, "StartupWarmup"));
+        startup.execute(() -> {
+            Trace.beginSection("Noor.deferredStartup");
+            try {
+                if (isDestroyed()) return;
+                Trace.beginSection("Noor.feedbackEngine");
+                feedbackEngine();
+                Trace.endSection();
+                Trace.beginSection("Noor.voiceProfiles");
+                voiceIdService.warmProfiles();
+                Trace.endSection();
+            } finally {
+                Trace.endSection();
+            }
+        });
+        startup.shutdown();
+    }
 
-        voiceIdService = new VoiceIdService(this);
+    private synchronized FeedbackEngine feedbackEngine() {
+        if (feedbackEngine == null) {
+            feedbackEngine = new FeedbackEngine(this);
+        }
+        return feedbackEngine;
+    }
 
-        // إضافة هذا السطر: تهيئة ToneGenerator مرة واحدة
-        toneGen = new ToneGenerator(AudioManager.STREAM_SYSTEM, 100);
+    private void registerChannels(@NonNull FlutterEngine flutterEngine) {
+        mainHandler = new Handler(Looper.getMainLooper());
+        // كلاهما خفيف: لا يقرأ أي شيء من القرص حتى أول استخدام.
+        voiceIdService = new VoiceIdService(this);
+        statusMonitor = new PermissionStatusMonitor(this);
 
 
         new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), CHANNEL).setMethodCallHandler((call, result) -> {
@@ -64,6 +155,12 @@ public class MainActivity extends FlutterFragmentActivity {
                     }
                     Intent startServiceIntent = new Intent(this, PorcupainService.class);
                     startServiceIntent.putExtra("apiKey", apiKey);
+                    // ضبط سياسة التحقق اختياري؛ الخدمة تستخدم القيم الافتراضية لما لم يُرسل.
+                    String scoringPolicy = call.argument("scoringPolicy");
+                    if (scoringPolicy != null) startServiceIntent.putExtra("scoringPolicy", scoringPolicy);
+                    putFloatArgument(call, startServiceIntent, "verifyThreshold");
+                    putFloatArgument(call, startServiceIntent, "acceptBound");
+                    putFloatArgument(call, startServiceIntent, "rejectBound");
                     startService(startServiceIntent);
                     result.success("Service Started");
                     break;
@@ -72,15 +169,17 @@ public class MainActivity extends FlutterFragmentActivity {
                     stopService(stopServiceIntent);
                     result.success("Service Stopped");
                     break;
+                case "getStatusSnapshot":
+                    result.success(statusMonitor.getSnapshot());
+                    break;
                 case "isIgnoringBatteryOptimizations":
-                    result.success(isIgnoringBatteryOptimizations());
+                    result.success(statusMonitor.isIgnoringBatteryOptimizations());
                     break;
                 case "isOverlayEnabled":
-                    result.success(isOverlayEnabled());
+                    result.success(statusMonitor.isOverlayEnabled());
                     break;
                 case "isAccessibilityEnabled":
-                    boolean enabled = isAccessibilityServiceEnabled(this, AutoOpenAccessibilityService.class);
-                    result.success(enabled);
+                    result.success(statusMonitor.isAccessibilityEnabled());
                     break;
                 case "requestBatteryOptimization":
                     requestBatteryOptimization();
@@ -100,7 +199,11 @@ public class MainActivity extends FlutterFragmentActivity {
             }
         });
 
-        new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), VOICE_ID_CHANNEL).setMethodCallHandler((call, result) -> {
+        new EventChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), STATUS_EVENT_CHANNEL).setStreamHandler(statusMonitor);
+
+        MethodChannel voiceIdChannel = new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), VOICE_ID_CHANNEL);
+        voiceIdService.setProgressChannel(voiceIdChannel);
+        voiceIdChannel.setMethodCallHandler((call, result) -> {
             switch (call.method) {
                 case "enrollVoice":
                     String accessKey = call.argument("accessKey");
@@ -108,7 +211,18 @@ public class MainActivity extends FlutterFragmentActivity {
                         result.error("NO_ACCESS_KEY", "No AccessKey was provided to Eagle", null);
                         return;
                     }
-                    voiceIdService.enrollVoice(this, accessKey, result);
+                    voiceIdService.enrollVoice(this, accessKey, call.argument("speakerName"), result);
+                    break;
+                case "removeSpeaker":
+                    String speakerName = call.argument("speakerName");
+                    if (speakerName == null) {
+                        result.error("NO_SPEAKER", "No speaker name provided", null);
+                        return;
+                    }
+                    voiceIdService.removeSpeaker(this, speakerName, result);
+                    break;
+                case "listSpeakers":
+                    result.success(voiceIdService.listSpeakers(this));
                     break;
                 case "resetEnrollment":
                     voiceIdService.resetEnrollment(this, result);
@@ -118,7 +232,8 @@ public class MainActivity extends FlutterFragmentActivity {
                     result.success(enrolled);
                     break;
                 case "saveVoiceProfile":
-                    List<Integer> voiceProfileBytes = call.argument("voiceProfileBytes");
+                    // Uint8List يصل كـ byte[] مباشرة؛ List<int> القديمة ما زالت مقبولة.
+                    byte[] voiceProfileBytes = ProfileBytes.from(call.argument("voiceProfileBytes"));
                     if (voiceProfileBytes != null) {
                         voiceIdService.saveVoiceProfile(this, voiceProfileBytes, result);
                     } else {
@@ -131,22 +246,119 @@ public class MainActivity extends FlutterFragmentActivity {
             }
         });
 
+        // Binary channel for voice profiles: Dart sends raw bytes, received here as a direct ByteBuffer.
+        new BasicMessageChannel<>(flutterEngine.getDartExecutor().getBinaryMessenger(), VOICE_PROFILE_CHANNEL, BinaryCodec.INSTANCE_DIRECT)
+                .setMessageHandler((message, reply) -> {
+                    boolean saved = message != null && voiceIdService.saveVoiceProfile(this, message);
+                    ByteBuffer status = ByteBuffer.allocateDirect(1);
+                    status.put((byte) (saved ? 1 : 0));
+                    reply.reply(status);
+                });
+
         new MethodChannel(flutterEngine.getDartExecutor().getBinaryMessenger(), "navia/feedback").setMethodCallHandler((call, result) -> {
             switch (call.method) {
+                // كل الحالات ترسل إلى خيط الصوت وتعود فوراً.
                 case "playSuccessTone":
-                    toneGen.startTone(ToneGenerator.TONE_PROP_ACK);
+                    feedbackEngine().play(FeedbackEngine.CUE_SUCCESS);
                     result.success(null);
                     break;
                 case "playFailureTone":
-                    toneGen.startTone(ToneGenerator.TONE_PROP_NACK);
+                    feedbackEngine().play(FeedbackEngine.CUE_FAILURE);
                     result.success(null);
                     break;
                 case "playLoadingTone":
-                    toneGen.startTone(ToneGenerator.TONE_SUP_DIAL);
+                    feedbackEngine().play(FeedbackEngine.CUE_LOADING);
                     result.success(null);
                     break;
                 case "playWaitingTone":
-                    toneGen.startTone(ToneGenerator.TONE_SUP_CALL_WAITING);
+                    feedbackEngine().play(FeedbackEngine.CUE_WAITING);
+                    result.success(null);
+                    break;
+                case "play":
+                    String cue = call.argument("cue");
+                    String vibration = call.argument("vibration");
+                    if (cue != null) feedbackEngine().play(cue);
+                    if (vibration != null) feedbackEngine().vibrate(vibration);
+                    result.success(null);
+                    break;
+                case "vibratePattern":
+                    java.util.List<Number> timings = call.argument("timings");
+                    if (timings != null && !timings.isEmpty()) {
+                        long[] pattern = new long[timings.size()];
+                        for (int i = 0; i < pattern.length; i++) pattern[i] = timings.get(i).longValue();
+                        feedbackEngine().vibrate(pattern);
+                    }
+                    result.success(null);
+                    break;
+                case "sequence":
+                    java.util.List<java.util.Map<String, Object>> steps = call.argument("steps");
+                    if (steps != null) feedbackEngine().playSequence(steps);
+                    result.success(null);
+                    break;
+                default:
+                    result.notImplemented();
+                    break;
+            }
+        });
+
+        BinaryMessenger messenger = flutterEngine.getDartExecutor().getBinaryMessenger();
+
+        // المقاييس تجمع في نفس العملية التي تعمل فيها PorcupainService وخدمة الوصول.
+        new MethodChannel(messenger, METRICS_CHANNEL).setMethodCallHandler((call, result) -> {
+            switch (call.method) {
+                case "snapshot":
+                    result.success(NoorMetrics.registry().snapshot());
+                    break;
+                case "reset":
+                    NoorMetrics.registry().reset();
+                    result.success(null);
+                    break;
+                default:
+                    result.notImplemented();
+            }
+        });
+
+        MethodChannel guidanceChannel = new MethodChannel(messenger, GUIDANCE_CHANNEL);
+        guidanceChannel.setMethodCallHandler((call, result) -> {
+            switch (call.method) {
+                case "start":
+                    String url = call.argument("url");
+                    if (url == null || url.isEmpty()) {
+                        result.error("NO_URL", "No guidance server URL provided", null);
+                        return;
+                    }
+                    if (guidanceEngine != null) {
+                        guidanceEngine.stop();
+                    }
+                    GuidanceStreamEngine.Config config = new GuidanceStreamEngine.Config();
+                    config.url = url;
+                    config.analysisWidth = intArgument(call, "analysisWidth", config.analysisWidth);
+                    config.analysisHeight = intArgument(call, "analysisHeight", config.analysisHeight);
+                    config.targetFps = intArgument(call, "targetFps", config.targetFps);
+                    config.jpegQuality = intArgument(call, "jpegQuality", config.jpegQuality);
+                    config.minFps = intArgument(call, "minFps", config.minFps);
+                    config.idleFps = intArgument(call, "idleFps", config.idleFps);
+                    config.targetLatencyMs = intArgument(call, "targetLatencyMs", (int) config.targetLatencyMs);
+                    config.torch = !Boolean.FALSE.equals(call.argument("torch"));
+                    if (call.argument("dropPolicy") != null) {
+                        config.dropPolicy = call.argument("dropPolicy");
+                    }
+                    guidanceEngine = new GuidanceStreamEngine(this, config, new GuidanceListener(guidanceChannel, result));
+                    guidanceEngine.start(this, flutterEngine.getRenderer());
+                    break;
+                case "pause":
+                    if (guidanceEngine != null) guidanceEngine.pause();
+                    result.success(null);
+                    break;
+                case "resume":
+                    if (guidanceEngine != null) guidanceEngine.resume();
+                    result.success(null);
+                    break;
+                case "stop":
+                    if (guidanceEngine != null) {
+                        guidanceEngine.stop();
+                        guidanceEngine = null;
+                    }
                     result.success(null);
                     break;
                 default:
@@ -175,6 +387,23 @@ public class MainActivity extends FlutterFragmentActivity {
                     AutoOpenAccessibilityService.stopConnectivitySession();
                     result.success(null);
                     break;
+                case "request_screen_capture":
+                    requestScreenCapture(result);
+                    break;
+                case "is_screen_capture_ready":
+                    result.success(ScreenCaptureService.isRunning());
+                    break;
+                case "capture_once":
+                    result.success(ScreenCaptureService.requestDecode());
+                    break;
+                case "set_flag_secure":
+                    if (Boolean.TRUE.equals(call.argument("enable"))) {
+                        getWindow().addFlags(WindowManager.LayoutParams.FLAG_SECURE);
+                    } else {
+                        getWindow().clearFlags(WindowManager.LayoutParams.FLAG_SECURE);
+                    }
+                    result.success(null);
+                    break;
                 case "reset_connectivity_session_flags":
                     settingsLaunchedThisSession = false;
                     a11yStartedThisSession = false;
@@ -192,6 +421,7 @@ public class MainActivity extends FlutterFragmentActivity {
                     connectivityFlowActive = false;
                     // (optional) remove suppression
                     sendBroadcast(new Intent("com.navia.navia.PORCUPINE_SUPPRESS").putExtra("suppress", false));
+                    ScreenCaptureService.stop(this);
                     // reset flags
                     settingsLaunchedThisSession = false;
                     a11yStartedThisSession = false;
@@ -205,6 +435,105 @@ public class MainActivity extends FlutterFragmentActivity {
 
         // Set up connectivity channel for accessibility service
         AutoOpenAccessibilityService.setConnectivityChannel(connectivityChannel);
+        ScreenCaptureService.setConnectivityChannel(connectivityChannel);
+    }
+
+    /** Forwards engine callbacks to Dart on the main thread; the start result completes once. */
+    private class GuidanceListener implements GuidanceStreamEngine.Listener {
+        private final MethodChannel channel;
+        private MethodChannel.Result startResult;
+
+        GuidanceListener(MethodChannel channel, MethodChannel.Result startResult) {
+            this.channel = channel;
+            this.startResult = startResult;
+        }
+
+        @Override
+        public void onReady(long textureId, int previewWidth, int previewHeight, int rotationDegrees) {
+            java.util.Map<String, Object> info = new java.util.HashMap<>();
+            info.put("textureId", textureId);
+            info.put("previewWidth", previewWidth);
+            info.put("previewHeight", previewHeight);
+            info.put("rotationDegrees", rotationDegrees);
+            mainHandler.post(() -> {
+                if (startResult != null) {
+                    startResult.success(info);
+                    startResult = null;
+                }
+            });
+        }
+
+        @Override
+        public void onGuidance(org.json.JSONObject message) {
+            java.util.Map<String, Object> guidance = new java.util.HashMap<>();
+            guidance.put("direction", message.optString("class", "no_document"));
+            guidance.put("coverage", message.optDouble("coverage", 0.0));
+            guidance.put("confidence", message.optDouble("conf", 0.0));
+            guidance.put("ready", message.optBoolean("ready", false));
+            if (message.has("seq")) guidance.put("seq", message.optInt("seq"));
+            mainHandler.post(() -> channel.invokeMethod("onGuidance", guidance));
+        }
+
+        @Override
+        public void onConnectionChanged(boolean connected) {
+            mainHandler.post(() -> channel.invokeMethod("onConnectionChanged", connected));
+        }
+
+        @Override
+        public void onError(String message) {
+            mainHandler.post(() -> {
+                if (startResult != null) {
+                    startResult.error("START_FAILED", message, null);
+                    startResult = null;
+                } else {
+                    channel.invokeMethod("onError", message);
+                }
+            });
+        }
+    }
+
+    private static int intArgument(io.flutter.plugin.common.MethodCall call, String key, int fallback) {
+        Integer value = call.argument(key);
+        return value != null ? value : fallback;
+    }
+
+    // Dart يرسل double دائماً؛ Intent يحتاج float.
+    private static void putFloatArgument(io.flutter.plugin.common.MethodCall call, Intent intent, String key) {
+        Number value = call.argument(key);
+        if (value != null) intent.putExtra(key, value.floatValue());
+    }
+
+    private void requestScreenCapture(MethodChannel.Result result) {
+        if (ScreenCaptureService.isRunning()) {
+            result.success(true);
+            return;
+        }
+        if (pendingScreenCaptureResult != null) {
+            result.error("CAPTURE_PENDING", "Screen capture consent already requested", null);
+            return;
+        }
+        MediaProjectionManager manager = (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
+        pendingScreenCaptureResult = result;
+        startActivityForResult(manager.createScreenCaptureIntent(), REQUEST_SCREEN_CAPTURE);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode != REQUEST_SCREEN_CAPTURE) return;
+        MethodChannel.Result result = pendingScreenCaptureResult;
+        pendingScreenCaptureResult = null;
+        boolean granted = resultCode == RESULT_OK && data != null;
+        if (granted) {
+            // The capture idles until the screen changes, so it can start right away.
+            Intent captureIntent = new Intent(this, ScreenCaptureService.class)
+                    .putExtra(ScreenCaptureService.EXTRA_RESULT_CODE, resultCode)
+                    .putExtra(ScreenCaptureService.EXTRA_RESULT_DATA, data);
+            ContextCompat.startForegroundService(this, captureIntent);
+        } else {
+            Log.d("Connectivity", "Screen capture consent denied");
+        }
+        if (result != null) result.success(granted);
     }
 
     private void openWifiSettings() {
@@ -255,28 +584,45 @@ public class MainActivity extends FlutterFragmentActivity {
 
     // إضافة هذه الدالة لتحرير الموارد عند إغلاق التطبيق
     @Override
-    protected void onDestroy() {
-        if (toneGen != null) {
-            toneGen.release();
+    protected void onResume() {
+        super.onResume();
+        // العودة من شاشات الإعدادات: خيار البطارية لا يمكن مراقبته، فنعيد الحساب هنا.
+        if (statusMonitor != null) {
+            statusMonitor.refresh();
+        }
+        // التطبيق كان يعمل: الإطار التالي بعد العودة هو نهاية مسار الاستيقاظ.
+        if (flutterUiDisplayed) {
+            Choreographer.getInstance().postFrameCallback(frameTimeNanos -> WakeTrace.endWake());
         }
-        super.onDestroy();
     }
 
-    // إضافة دوال التحقق من الأذونات المفقودة
-    private boolean isIgnoringBatteryOptimizations() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            return getSystemService(PowerManager.class).isIgnoringBatteryOptimizations(getPackageName());
+    @Override
+    protected void onDestroy() {
+        if (statusMonitor != null) {
+            statusMonitor.dispose();
+        }
+        if (guidanceEngine != null) {
+            guidanceEngine.stop();
+            guidanceEngine = null;
         }
-        return true;
+        synchronized (this) {
+            if (feedbackEngine != null) {
+                feedbackEngine.release();
+                feedbackEngine = null;
+            }
+        }
+        super.onDestroy();
     }
 
-    private boolean isOverlayEnabled() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            return Settings.canDrawOverlays(this);
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (voiceIdService != null) {
+            voiceIdService.onTrimMemory(level);
         }
-        return true;
     }
 
+    // دوال طلب الأذونات المفقودة؛ التحقق منها في PermissionStatusMonitor
     private void requestBatteryOptimization() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             Intent intent = new Intent(Settings.ACTION_REQUEST_IGNORE_BATTERY_OPTIMIZATIONS);
@@ -301,19 +647,4 @@ public class MainActivity extends FlutterFragmentActivity {
         startActivity(intent);
         Toast.makeText(this, "يرجى البحث عن 'Noor' وتفعيل خدمة إمكانية الوصول.", Toast.LENGTH_LONG).show();
     }
-
-    private boolean isAccessibilityServiceEnabled(Context context, Class<?> accessibilityService) {
-        String expectedComponentName = context.getPackageName() + "/" + accessibilityService.getName();
-        String enabledServices = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES);
-        if (enabledServices == null) return false;
-        TextUtils.SimpleStringSplitter colonSplitter = new TextUtils.SimpleStringSplitter(':');
-        colonSplitter.setString(enabledServices);
-        while (colonSplitter.hasNext()) {
-            String componentName = colonSplitter.next();
-            if (componentName.equalsIgnoreCase(expectedComponentName)) {
-                return true;
-            }
-        }
-        return false;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.navia.navia;
+
+/**
+ * The metrics recorded by the wake-word service, voice verification and the accessibility
+ * service. Handles are registered once here so every call site records without a map
+ * lookup. Exported through the navia/metrics channel and {@code adb shell dumpsys activity
+ * service com.navia.navia/.PorcupainService}.
+ */
+public final class NoorMetrics {
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.getInstance();
+
+    // الالتقاط والكلمة المفتاحية (PorcupainService)
+    public static final MetricsRegistry.Counter AUDIO_FRAMES = REGISTRY.counter("audio.frames");
+    public static final MetricsRegistry.Counter AUDIO_READ_ERRORS = REGISTRY.counter("audio.read_errors");
+    public static final MetricsRegistry.Counter KEYWORD_FRAMES = REGISTRY.counter("keyword.frames");
+    // Share of captured frames the energy gate kept from Porcupine, in 1/1000, and its noise floor RMS.
+    public static final MetricsRegistry.Gauge VAD_GATED_PERMILLE = REGISTRY.gauge("vad.gated_permille");
+    public static final MetricsRegistry.Gauge VAD_NOISE_FLOOR = REGISTRY.gauge("vad.noise_floor_rms");
+    public static final MetricsRegistry.Counter WAKES = REGISTRY.counter("wake.detected");
+    public static final MetricsRegistry.Counter WAKES_COALESCED = REGISTRY.counter("wake.coalesced");
+    public static final MetricsRegistry.Gauge VERIFY_QUEUE_DEPTH = REGISTRY.gauge("verify.queue_depth");
+
+    // التحقق من الصوت (VoiceIdService)
+    public static final MetricsRegistry.Counter VERIFY_ACCEPTED = REGISTRY.counter("verify.accepted");
+    public static final MetricsRegistry.Counter VERIFY_REJECTED = REGISTRY.counter("verify.rejected");
+    public static final MetricsRegistry.Counter VERIFY_ERRORS = REGISTRY.counter("verify.errors");
+    public static final MetricsRegistry.Counter VERIFY_STREAMING = REGISTRY.counter("verify.streaming_decisions");
+    public static final MetricsRegistry.Histogram VERIFY_DURATION_MS = REGISTRY.histogram("verify.duration_ms",
+            5, 10, 20, 50, 100, 200, 500, 1000, 2000);
+    // Policy aggregate x1000; max and top-k stay in 0..1000, sequential evidence can go negative.
+    public static final MetricsRegistry.Histogram VERIFY_SCORE = REGISTRY.histogram("verify.score_milli",
+            0, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000);
+
+    // جلسات الاتصال (AutoOpenAccessibilityService)
+    public static final MetricsRegistry.Counter A11Y_SESSIONS = REGISTRY.counter("a11y.sessions");
+    public static final MetricsRegistry.Counter A11Y_SESSION_TIMEOUTS = REGISTRY.counter("a11y.session_timeouts");
+    public static final MetricsRegistry.Counter A11Y_EVENTS = REGISTRY.counter("a11y.events");
+    public static final MetricsRegistry.Counter A11Y_SCANS = REGISTRY.counter("a11y.scans");
+    public static final MetricsRegistry.Counter A11Y_CACHE_HITS = REGISTRY.counter("a11y.resolver_cache_hits");
+    public static final MetricsRegistry.Counter A11Y_CACHE_MISSES = REGISTRY.counter("a11y.resolver_cache_misses");
+    public static final MetricsRegistry.Counter A11Y_CLICKS = REGISTRY.counter("a11y.clicks");
+    public static final MetricsRegistry.Histogram A11Y_SCANS_PER_SESSION = REGISTRY.histogram("a11y.scans_per_session",
+            1, 2, 5, 10, 20, 50, 100);
+    public static final MetricsRegistry.Histogram A11Y_SCAN_NODES = REGISTRY.histogram("a11y.scan_nodes",
+            10, 50, 100, 200, 400, 600);
+    public static final MetricsRegistry.Histogram A11Y_TIME_TO_CLICK_MS = REGISTRY.histogram("a11y.time_to_click_ms",
+            100, 250, 500, 1000, 2000, 5000, 10000, 20000);
+
+    private NoorMetrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+}
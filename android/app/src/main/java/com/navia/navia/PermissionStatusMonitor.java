@@ -0,0 +1,152 @@
+package com.navia.navia;
+
+import android.Manifest;
+import android.app.AppOpsManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Cached snapshot of the permissions and services Noor depends on, for the nabd/foreground
+ * channel (getStatusSnapshot) and the nabd/foreground/status EventChannel.
+ *
+ * The snapshot is computed once and kept until something invalidates it: a ContentObserver
+ * on the accessibility settings, an AppOps watcher for the overlay permission, or
+ * {@link #refresh()} when the activity resumes (battery optimization has no observable
+ * setting). Changed snapshots are pushed to the event sink, so Dart never polls. Main thread
+ * only.
+ */
+public final class PermissionStatusMonitor implements EventChannel.StreamHandler {
+    private static final String TAG = "PermissionStatus";
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final String accessibilityComponent;
+    private Map<String, Object> snapshot;
+    private EventChannel.EventSink sink;
+    private boolean watching = false;
+
+    private final ContentObserver settingsObserver = new ContentObserver(mainHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            refresh();
+        }
+    };
+
+    private final AppOpsManager.OnOpChangedListener overlayListener = (op, packageName) -> mainHandler.post(this::refresh);
+
+    public PermissionStatusMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        accessibilityComponent = this.context.getPackageName() + "/" + AutoOpenAccessibilityService.class.getName();
+    }
+
+    /** Returns the cached snapshot, computing it on first use. */
+    public Map<String, Object> getSnapshot() {
+        if (snapshot == null) {
+            snapshot = compute();
+            startWatching();
+        }
+        return snapshot;
+    }
+
+    /** Recomputes the snapshot and pushes it to Dart if anything changed. */
+    public void refresh() {
+        Map<String, Object> updated = compute();
+        if (updated.equals(snapshot)) return;
+        snapshot = updated;
+        Log.d(TAG, "Status changed: " + updated);
+        if (sink != null) sink.success(updated);
+    }
+
+    public boolean isIgnoringBatteryOptimizations() {
+        return Boolean.TRUE.equals(getSnapshot().get("batteryOptimizationIgnored"));
+    }
+
+    public boolean isOverlayEnabled() {
+        return Boolean.TRUE.equals(getSnapshot().get("overlayEnabled"));
+    }
+
+    public boolean isAccessibilityEnabled() {
+        return Boolean.TRUE.equals(getSnapshot().get("accessibilityEnabled"));
+    }
+
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+        sink = events;
+        events.success(getSnapshot());
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+        sink = null;
+    }
+
+    public void dispose() {
+        if (!watching) return;
+        watching = false;
+        context.getContentResolver().unregisterContentObserver(settingsObserver);
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps != null) appOps.stopWatchingMode(overlayListener);
+    }
+
+    private void startWatching() {
+        if (watching) return;
+        watching = true;
+        context.getContentResolver().registerContentObserver(
+                Settings.Secure.getUriFor(Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES), false, settingsObserver);
+        context.getContentResolver().registerContentObserver(
+                Settings.Secure.getUriFor(Settings.Secure.ACCESSIBILITY_ENABLED), false, settingsObserver);
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps != null) {
+            appOps.startWatchingMode(AppOpsManager.OPSTR_SYSTEM_ALERT_WINDOW, context.getPackageName(), overlayListener);
+        }
+    }
+
+    private Map<String, Object> compute() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("batteryOptimizationIgnored", computeBatteryOptimizationIgnored());
+        status.put("overlayEnabled", Build.VERSION.SDK_INT < Build.VERSION_CODES.M || Settings.canDrawOverlays(context));
+        status.put("accessibilityEnabled", computeAccessibilityEnabled());
+        status.put("accessibilityConnected", AutoOpenAccessibilityService.getInstance() != null);
+        status.put("microphoneGranted", isGranted(Manifest.permission.RECORD_AUDIO));
+        status.put("cameraGranted", isGranted(Manifest.permission.CAMERA));
+        return status;
+    }
+
+    private boolean computeBatteryOptimizationIgnored() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return true;
+        PowerManager powerManager = context.getSystemService(PowerManager.class);
+        return powerManager != null && powerManager.isIgnoringBatteryOptimizations(context.getPackageName());
+    }
+
+    private boolean computeAccessibilityEnabled() {
+        String enabledServices = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ENABLED_ACCESSIBILITY_SERVICES);
+        if (enabledServices == null) return false;
+        TextUtils.SimpleStringSplitter colonSplitter = new TextUtils.SimpleStringSplitter(':');
+        colonSplitter.setString(enabledServices);
+        while (colonSplitter.hasNext()) {
+            if (colonSplitter.next().equalsIgnoreCase(accessibilityComponent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isGranted(String permission) {
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+}
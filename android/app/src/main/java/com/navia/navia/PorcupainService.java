@@ -12,22 +12,23 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import android.Manifest;
 import android.content.pm.PackageManager;
-import ai.picovoice.porcupine.PorcupineManager;
+import ai.picovoice.porcupine.Porcupine;
 import ai.picovoice.porcupine.PorcupineException;
-import ai.picovoice.porcupine.PorcupineManagerCallback;
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
-import java.util.Arrays; // Import the Arrays class to use it
 import android.content.BroadcastReceiver;
 import android.content.IntentFilter;
 import android.content.Context;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class PorcupainService extends Service {
     private static final String TAG = "PorcupainService";
     private static final String CHANNEL_ID = "WakeWordChannel";
     private static final int NOTIFICATION_ID = 1;
-    private PorcupineManager porcupineManager;
+    private volatile Porcupine porcupine;
     private boolean isRunning = false;
     private NotificationManager notificationManager;
     private VoiceIdService voiceIdService;
@@ -39,10 +40,23 @@ public class PorcupainService extends Service {
     private static final int FRAME_LENGTH = 512;
     private static final int BUFFER_SIZE = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNELS, ENCODING);
     private AudioRecord audioRecord;
-    private short[] audioBuffer;
-    private int bufferIndex = 0;
-    private boolean isRecording = false;
+    private AudioRingBuffer audioRingBuffer;
+    // نسخة يملكها المستدعي يُعاد استخدامها لكل عملية تحقق بدلاً من تخصيص مصفوفة جديدة.
+    private short[] snapshotBuffer;
+    private VerificationDispatcher verificationDispatcher;
+    private volatile boolean isRecording = false;
+    // حالة خيط الالتقاط محمية بـ captureLock: الإيقاف لا ينتظره، فقد يبقى حياً بعد stopListening
+    // حتى تنتهي القراءة الجارية، فلا نحرر Porcupine ولا نشغل خيطاً ثانياً قبل خروجه.
+    private final Object captureLock = new Object();
+    private boolean captureAlive = false;
+    private boolean releaseEnginesOnExit = false;
+    private boolean restartOnExit = false;
     private volatile boolean suppressed = false;
+    private boolean streamingVerification = true;
+    // بوابة الطاقة: Porcupine لا يعمل على الإطارات الصامتة. null إذا عطّلها المستدعي.
+    private EnergyVadGate vadGate;
+    private static final int VAD_METRICS_INTERVAL_FRAMES = 32;
+    private final android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
     
     // Fix receiver leak
     private boolean receiverRegistered = false;
@@ -83,7 +97,9 @@ public class PorcupainService extends Service {
         // قم بزيادة حجم المخزن المؤقت للاحتفاظ ببيانات صوتية كافية (على سبيل المثال، 4 ثوانٍ).
         // هذا يضمن وجود بيانات صوتية كافية للتحقق بعد اكتشاف الكلمة المفتاحية.
         int bufferSizeInFrames = SAMPLE_RATE * 4 / FRAME_LENGTH; // 4 seconds of audio
-        audioBuffer = new short[bufferSizeInFrames * FRAME_LENGTH];
+        audioRingBuffer = new AudioRingBuffer(FRAME_LENGTH, bufferSizeInFrames);
+        snapshotBuffer = new short[audioRingBuffer.getCapacitySamples()];
+        verificationDispatcher = new VerificationDispatcher("VoiceVerification", 1);
     }
 
     @Override
@@ -119,146 +135,328 @@ public class PorcupainService extends Service {
             }
 
             try {
-                porcupineManager = new PorcupineManager.Builder()
+                // نستخدم Porcupine مباشرة بدلاً من PorcupineManager حتى لا يفتح المايكروفون بنفسه؛
+                // خيط الالتقاط الوحيد يمرر كل إطار إلى Porcupine وإلى المخزن المؤقت للتحقق من الصوت.
+                porcupine = new Porcupine.Builder()
                         .setAccessKey(apiKey)
                         .setKeywordPath("noor.ppn")
                         .setSensitivity(0.7f)
-                        .build(this, new PorcupineManagerCallback() {
-                            @Override
-                            public void invoke(int keywordIndex) {
-                                if (keywordIndex == 0) {
-                                    Log.d(TAG, "Keyword 'noor' detected!");
-                                    // الخطوة الحاسمة: قم بنسخ المخزن المؤقت الصوتي الحالي قبل التحقق.
-                                    // هذا يضمن أن البيانات لا تتغير أثناء عملية التحقق.
-                                    short[] snapshotBuffer;
-                                    synchronized (audioBuffer) {
-                                        snapshotBuffer = Arrays.copyOf(audioBuffer, audioBuffer.length);
-                                    }
-                                    verifyAndOpenApp(snapshotBuffer, apiKey);
-                                }
-                            }
-                        });
-                Log.d(TAG, "PorcupineManager initialized successfully");
+                        .build(this);
+                Log.d(TAG, "Porcupine initialized successfully");
             } catch (PorcupineException e) {
-                Log.e(TAG, "Failed to initialize PorcupineManager: " + e.getMessage());
-                porcupineManager = null;
+                Log.e(TAG, "Failed to initialize Porcupine: " + e.getMessage());
+                porcupine = null;
                 stopSelf();
                 return START_NOT_STICKY;
             }
 
+            try {
+                voiceIdService.setScoringPolicy(intent.getStringExtra("scoringPolicy"),
+                        intent.getFloatExtra("verifyThreshold", 0.6f),
+                        intent.getFloatExtra("acceptBound", VoiceScoringPolicy.DEFAULT_ACCEPT_BOUND),
+                        intent.getFloatExtra("rejectBound", VoiceScoringPolicy.DEFAULT_REJECT_BOUND));
+            } catch (IllegalArgumentException e) {
+                // حدود غير صالحة من Flutter: نبقى على السياسة الافتراضية بدلاً من إيقاف الخدمة.
+                Log.e(TAG, "Invalid scoring policy: " + e.getMessage());
+            }
+
+            // التحقق المتدفق: Eagle يعالج كل إطار بالتوازي مع Porcupine فيكون القرار جاهزاً عند الكلمة المفتاحية.
+            // يتم تحميل Eagle مسبقاً في الخلفية عند بدء الخدمة حتى لا يدفع أول تنبيه ثمن تحميل النموذج.
+            vadGate = intent.getBooleanExtra("vadGate", true) ? EnergyVadGate.forWakeWord(FRAME_LENGTH) : null;
+
+            streamingVerification = intent.getBooleanExtra("streamingVerification", true)
+                    && voiceIdService.startStreamingVerification(this, apiKey);
+            if (!streamingVerification) {
+                voiceIdService.preload(this, apiKey);
+            }
+
             startListening();
-            startRecording();
         }
         return START_STICKY;
     }
 
-    private void startRecording() {
+    // يفتح AudioRecord واحد ويشغل خيط الالتقاط الوحيد للخدمة.
+    private void startListening() {
+        if (suppressed) {
+            Log.d(TAG, "Suppressed: skip starting listening");
+            return;
+        }
+
+        if (porcupine == null) {
+            Log.e(TAG, "Porcupine is null. Cannot start listening.");
+            stopSelf();
+            return;
+        }
+
+        if (isRecording) {
+            return;
+        }
+
+        synchronized (captureLock) {
+            if (captureAlive) {
+                // الخيط السابق لم يخرج بعد؛ سيعيد التشغيل بنفسه عند خروجه.
+                Log.d(TAG, "Previous capture thread still draining, restart deferred");
+                restartOnExit = true;
+                return;
+            }
+        }
+
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             Log.e(TAG, "Microphone permission not granted, cannot start recording");
             stopSelf();
             return;
         }
 
-        audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNELS, ENCODING, BUFFER_SIZE);
+        int bufferSize = Math.max(BUFFER_SIZE, FRAME_LENGTH * 2 * 2);
+        audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNELS, ENCODING, bufferSize);
         if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
             Log.e(TAG, "Failed to initialize AudioRecord");
+            audioRecord.release();
+            audioRecord = null;
             stopSelf();
             return;
         }
 
         audioRecord.startRecording();
         isRecording = true;
+        if (streamingVerification) {
+            voiceIdService.resetStreamingWindow();
+        }
+        if (vadGate != null) {
+            vadGate.reset();
+        }
+
+        final AudioRecord record = audioRecord;
+        final Porcupine engine = porcupine;
+        synchronized (captureLock) {
+            captureAlive = true;
+        }
+        new Thread(() -> captureLoop(record, engine), "PorcupainCapture").start();
+        Log.d(TAG, "Capture started successfully");
+    }
 
-        new Thread(() -> {
+    // خيط الالتقاط يملك AudioRecord ويحرره عند الخروج، فلا يمكن تحريره أثناء القراءة.
+    private void captureLoop(AudioRecord record, Porcupine engine) {
+        android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_URGENT_AUDIO);
+        short[] frameBuffer = new short[FRAME_LENGTH];
+        EnergyVadGate gate = vadGate;
+        int framesSinceMetrics = 0;
+        try {
             // قم بقراءة البيانات من المايكروفون باستمرار
             while (isRecording) {
-                short[] frameBuffer = new short[FRAME_LENGTH];
-                int numRead = audioRecord.read(frameBuffer, 0, frameBuffer.length);
-                if (numRead > 0) {
-                    synchronized (audioBuffer) {
-                        // قم بنسخ البيانات إلى المخزن المؤقت الدائري
-                        System.arraycopy(frameBuffer, 0, audioBuffer, bufferIndex * FRAME_LENGTH, numRead);
-                        bufferIndex = (bufferIndex + 1) % (audioBuffer.length / FRAME_LENGTH);
+                if (!readFrame(record, frameBuffer)) {
+                    NoorMetrics.AUDIO_READ_ERRORS.inc();
+                    continue;
+                }
+                NoorMetrics.AUDIO_FRAMES.inc();
+
+                // قم بنسخ البيانات إلى المخزن المؤقت الدائري (بدون قفل وبدون تخصيص)
+                audioRingBuffer.write(frameBuffer);
+                if (streamingVerification) {
+                    voiceIdService.processStreamingFrame(frameBuffer);
+                }
+
+                // الإطارات الصامتة لا تصل إلى Porcupine؛ عند فتح البوابة تمر الإطارات السابقة أولاً.
+                int pending = gate != null ? gate.offer(frameBuffer) : 1;
+                for (int i = 0; i < pending; i++) {
+                    short[] frame = gate != null ? gate.frameAt(i) : frameBuffer;
+                    int keywordIndex;
+                    try {
+                        keywordIndex = engine.process(frame);
+                    } catch (PorcupineException e) {
+                        Log.e(TAG, "Porcupine process error: " + e.getMessage());
+                        continue;
+                    }
+
+                    if (keywordIndex == 0) {
+                        onKeywordDetected();
                     }
                 }
+                NoorMetrics.KEYWORD_FRAMES.add(pending);
+                if (gate != null && ++framesSinceMetrics == VAD_METRICS_INTERVAL_FRAMES) {
+                    framesSinceMetrics = 0;
+                    NoorMetrics.VAD_GATED_PERMILLE.set(Math.round(gate.getGatedRatio() * 1000));
+                    NoorMetrics.VAD_NOISE_FLOOR.set(Math.round(gate.getNoiseFloor()));
+                }
+            }
+        } finally {
+            try {
+                record.stop();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error stopping AudioRecord: " + e.getMessage());
             }
-        }).start();
-        Log.d(TAG, "Recording started successfully");
+            record.release();
+            Log.d(TAG, "Capture stopped");
+            onCaptureThreadExit();
+        }
     }
 
-    private void startListening() {
-        if (suppressed) {
-            Log.d(TAG, "Suppressed: skip starting listening");
+    private void onCaptureThreadExit() {
+        boolean release;
+        boolean restart;
+        synchronized (captureLock) {
+            captureAlive = false;
+            release = releaseEnginesOnExit;
+            restart = restartOnExit && !release;
+            releaseEnginesOnExit = false;
+            restartOnExit = false;
+        }
+        if (release) {
+            // onDestroy لم يستطع انتظارنا؛ المحركات تتحرر هنا بعد آخر استدعاء process().
+            releaseEngines();
+        } else if (restart) {
+            mainHandler.post(this::startListeningSafely);
+        }
+    }
+
+    private void releaseEngines() {
+        voiceIdService.stopStreamingVerification();
+        Porcupine engine = porcupine;
+        porcupine = null;
+        if (engine != null) {
+            engine.delete();
+            Log.d(TAG, "Porcupine deleted");
+        }
+    }
+
+    // يقرأ إطاراً كاملاً (FRAME_LENGTH عينة) حتى لو أعاد AudioRecord قراءات جزئية.
+    private boolean readFrame(AudioRecord record, short[] frameBuffer) {
+        int offset = 0;
+        while (isRecording && offset < FRAME_LENGTH) {
+            int numRead = record.read(frameBuffer, offset, FRAME_LENGTH - offset);
+            if (numRead <= 0) {
+                if (BuildConfig.HOT_PATH_LOGS) Log.w(TAG, "AudioRecord read returned " + numRead);
+                return false;
+            }
+            offset += numRead;
+        }
+        return offset == FRAME_LENGTH;
+    }
+
+    private void onKeywordDetected() {
+        if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Keyword 'noor' detected!");
+        NoorMetrics.WAKES.inc();
+        if (streamingVerification && voiceIdService.isStreamingDecisionReady()) {
+            WakeTrace.beginWake();
+            WakeTrace.begin("Noor.streamingDecision");
+            boolean matched = voiceIdService.getStreamingDecision();
+            WakeTrace.end();
+            WakeTrace.endVerify(matched);
+            if (matched) {
+                if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice verified, opening app...");
+                mainHandler.post(this::openApp);
+            } else {
+                if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice not matched, ignoring...");
+            }
             return;
         }
-        
-        if (porcupineManager == null) {
-            Log.e(TAG, "PorcupineManager is null. Cannot start listening.");
-            stopSelf();
+
+        // لا نشغل Eagle على خيط الالتقاط: التحقق يتم على خيط مخصص، وأي كلمة مفتاحية
+        // تصل أثناء تحقق جارٍ يتم دمجها (تجاهلها) بدلاً من تكديسها.
+        NoorMetrics.VERIFY_QUEUE_DEPTH.set(verificationDispatcher.getQueueDepth());
+        if (!verificationDispatcher.tryBegin()) {
+            NoorMetrics.WAKES_COALESCED.inc();
+            if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Verification in flight, coalescing wake: " + verificationDispatcher);
             return;
         }
+        // الاستيقاظات المدمجة لا تفتح مقطعاً جديداً في التتبع.
+        WakeTrace.beginWake();
 
-        try {
-            porcupineManager.start();
-            Log.d(TAG, "PorcupineManager started listening");
-        } catch (PorcupineException e) {
-            Log.e(TAG, "Failed to start PorcupineManager: " + e.getMessage());
-            stopSelf();
+        // الخطوة الحاسمة: قم بنسخ المخزن المؤقت الصوتي الحالي قبل التحقق.
+        // اللقطة مرتبة زمنياً من الأقدم إلى الأحدث، ولا تتغير أثناء عملية التحقق
+        // لأن المصفوفة لا يعاد استخدامها قبل انتهاء التحقق الجاري.
+        WakeTrace.begin("Noor.snapshot");
+        int numSamples = audioRingBuffer.snapshot(snapshotBuffer);
+        WakeTrace.end();
+        if (numSamples == 0) {
+            Log.w(TAG, "Audio snapshot unavailable, skipping verification");
+            verificationDispatcher.cancel();
+            WakeTrace.endVerify(false);
+            return;
+        }
+        final String key = apiKey;
+        if (!verificationDispatcher.submit(() -> verifyAndOpenApp(snapshotBuffer, numSamples, key))) {
+            Log.w(TAG, "Verification rejected: " + verificationDispatcher);
+            WakeTrace.endVerify(false);
         }
     }
 
+    // يوقف خيط الالتقاط ويحرر المايكروفون (مثلاً أثناء تدفق الاتصال).
+    // لا ننتظر خيط الالتقاط هنا: قد نكون على الخيط الرئيسي (مستقبل حالة المكالمة).
+    // الخيط يخرج بعد القراءة الجارية ويحرر AudioRecord بنفسه، وcaptureLock يؤجل إعادة التشغيل
+    // أو تحرير المحركات حتى يخرج.
+    private void stopListening() {
+        isRecording = false;
+        audioRecord = null;
+    }
+
     private void stopListeningSafely() {
         try {
-            if (porcupineManager != null) {
-                porcupineManager.stop();
-                Log.d(TAG, "PorcupineManager stopped safely");
-            }
+            stopListening();
+            Log.d(TAG, "Listening stopped safely");
         } catch (Throwable ignored) {}
     }
 
     private void startListeningSafely() {
         try {
-            if (!suppressed && porcupineManager != null) {
-                porcupineManager.start();
-                Log.d(TAG, "PorcupineManager started safely");
+            if (!suppressed && porcupine != null) {
+                startListening();
+                Log.d(TAG, "Listening started safely");
             }
         } catch (Throwable ignored) {}
     }
 
-    private void verifyAndOpenApp(short[] audioBuffer, String apiKey) {
+    private void verifyAndOpenApp(short[] audioBuffer, int numSamples, String apiKey) {
         io.flutter.plugin.common.MethodChannel.Result callback = new io.flutter.plugin.common.MethodChannel.Result() {
             @Override
             public void success(Object result) {
+                WakeTrace.endVerify(Boolean.TRUE.equals(result));
                 if (result instanceof Boolean) {
                     if ((Boolean) result) {
-                        Log.d(TAG, "Voice verified, opening app...");
+                        if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice verified, opening app...");
                         openApp();
                     } else {
-                        Log.d(TAG, "Voice not matched, ignoring...");
+                        if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice not matched, ignoring...");
                     }
                 } else {
-                    Log.d(TAG, "Unexpected result format, ignoring...");
+                    if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Unexpected result format, ignoring...");
                 }
             }
 
             @Override
             public void error(String errorCode, String errorMessage, Object errorDetails) {
+                WakeTrace.endVerify(false);
                 Log.e(TAG, "Voice verification error: " + errorMessage);
             }
 
             @Override
             public void notImplemented() {
+                WakeTrace.endVerify(false);
                 Log.w(TAG, "Method not implemented");
             }
         };
-        voiceIdService.verifyVoice(this, audioBuffer, apiKey, callback);
+        WakeTrace.begin("Noor.verify");
+        try {
+            voiceIdService.verifyVoice(this, audioBuffer, numSamples, apiKey, callback);
+        } finally {
+            WakeTrace.end();
+        }
     }
 
     private void openApp() {
-        Log.d(TAG, "Trying to open app using AccessibilityService...");
+        WakeTrace.begin("Noor.openApp");
+        try {
+            launchMainActivity();
+        } finally {
+            WakeTrace.end();
+        }
+    }
+
+    private void launchMainActivity() {
+        if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Trying to open app using AccessibilityService...");
         if (AutoOpenAccessibilityService.getInstance() != null) {
             AutoOpenAccessibilityService.launchApp(AutoOpenAccessibilityService.getInstance());
-            Log.d(TAG, "App launched using AccessibilityService");
+            if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "App launched using AccessibilityService");
             return;
         }
 
@@ -266,7 +464,7 @@ public class PorcupainService extends Service {
         if (launchIntent != null) {
             launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
             startActivity(launchIntent);
-            Log.d(TAG, "App launched via getLaunchIntentForPackage");
+            if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "App launched via getLaunchIntentForPackage");
         } else {
             Log.e(TAG, "Launch intent is null.");
         }
@@ -297,7 +495,6 @@ public class PorcupainService extends Service {
     @Override
     public void onDestroy() {
         isRunning = false;
-        isRecording = false;
         
         // Fix receiver leak
         try {
@@ -307,37 +504,44 @@ public class PorcupainService extends Service {
             }
         } catch (Throwable ignored) {}
         
-        if (audioRecord != null) {
-            audioRecord.stop();
-            audioRecord.release();
-            audioRecord = null;
+        stopListening();
+        verificationDispatcher.shutdown();
+        Log.d(TAG, "Verification stats: " + verificationDispatcher);
+        boolean deferRelease;
+        synchronized (captureLock) {
+            restartOnExit = false;
+            deferRelease = captureAlive;
+            releaseEnginesOnExit = captureAlive;
         }
-        if (porcupineManager != null) {
-            try {
-                porcupineManager.stop();
-                porcupineManager.delete();
-                Log.d(TAG, "PorcupineManager stopped and deleted");
-            } catch (PorcupineException e) {
-                Log.e(TAG, "Error stopping PorcupineManager: " + e.getMessage());
-            }
+        if (deferRelease) {
+            Log.d(TAG, "Capture thread draining, engines released when it exits");
+        } else {
+            releaseEngines();
         }
         super.onDestroy();
         Log.d(TAG, "Service Destroyed");
     }
 
+    // adb shell dumpsys activity service com.navia.navia/.PorcupainService
     @Override
-    public IBinder onBind(Intent intent) {
-        return null;
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("PorcupainService running=" + isRunning + " recording=" + isRecording
+                + " suppressed=" + suppressed + " streaming=" + streamingVerification);
+        if (verificationDispatcher != null) {
+            writer.println("  " + verificationDispatcher);
+        }
+        writer.println("Metrics:");
+        NoorMetrics.registry().dump(writer);
     }
 
-    private void stopListening() {
-        if (porcupineManager != null) {
-            try {
-                porcupineManager.stop();
-                Log.d(TAG, "PorcupineManager stopped listening");
-            } catch (PorcupineException e) {
-                Log.e(TAG, "Failed to stop PorcupineManager: " + e.getMessage());
-            }
-        }
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        voiceIdService.onTrimMemory(level);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
     }
 }
@@ -0,0 +1,196 @@
+package com.navia.navia;
+
+import android.app.Activity;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.media.projection.MediaProjection;
+import android.media.projection.MediaProjectionManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Foreground service that owns the MediaProjection while the Wi-Fi QR code is captured.
+ * Android 10+ only hands out a projection to a foreground service of type mediaProjection.
+ * Results are pushed to Dart through the nabd/connectivity channel, and the service stops
+ * itself as soon as the QR code is parsed or the capture window runs out.
+ */
+public class ScreenCaptureService extends Service implements WifiQrCapturePipeline.Listener {
+    private static final String TAG = "ScreenCaptureService";
+    private static final String CHANNEL_ID = "ScreenCaptureChannel";
+    private static final int NOTIFICATION_ID = 2;
+    private static final long CAPTURE_TIMEOUT_MS = 30_000;
+
+    public static final String EXTRA_RESULT_CODE = "resultCode";
+    public static final String EXTRA_RESULT_DATA = "resultData";
+
+    private static ScreenCaptureService instance;
+    private static MethodChannel connectivityChannel;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private MediaProjection projection;
+    private WifiQrCapturePipeline pipeline;
+
+    private final Runnable captureTimeout = () -> {
+        Log.d(TAG, "Capture window elapsed without a Wi-Fi QR code");
+        sendFailure("qr_timeout");
+        stopSelf();
+    };
+
+    private final MediaProjection.Callback projectionCallback = new MediaProjection.Callback() {
+        @Override
+        public void onStop() {
+            Log.d(TAG, "Projection stopped by the system");
+            projection = null;
+            stopSelf();
+        }
+    };
+
+    public static void setConnectivityChannel(MethodChannel channel) {
+        connectivityChannel = channel;
+    }
+
+    public static boolean isRunning() {
+        return instance != null;
+    }
+
+    /** Forces a decode of the next frame, for an explicit capture_once from Dart. */
+    public static boolean requestDecode() {
+        ScreenCaptureService svc = instance;
+        if (svc == null || svc.pipeline == null) return false;
+        svc.pipeline.requestDecode();
+        return true;
+    }
+
+    public static void stop(Context context) {
+        if (instance != null) {
+            context.stopService(new Intent(context, ScreenCaptureService.class));
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        instance = this;
+        createNotificationChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // يجب أن تبدأ الخدمة في المقدمة قبل طلب MediaProjection (Android 14).
+        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_menu_camera)
+                .setContentTitle("Reading Wi-Fi QR code")
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOngoing(true)
+                .build();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PROJECTION);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+
+        if (projection != null || intent == null) {
+            return START_NOT_STICKY;
+        }
+        int resultCode = intent.getIntExtra(EXTRA_RESULT_CODE, Activity.RESULT_CANCELED);
+        Intent data = intent.getParcelableExtra(EXTRA_RESULT_DATA);
+        MediaProjectionManager manager = (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
+        projection = data == null ? null : manager.getMediaProjection(resultCode, data);
+        if (projection == null) {
+            Log.e(TAG, "MediaProjection unavailable");
+            sendFailure("projection_unavailable");
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        projection.registerCallback(projectionCallback, mainHandler);
+
+        pipeline = new WifiQrCapturePipeline(projection, getResources().getDisplayMetrics(), this);
+        pipeline.start();
+        mainHandler.postDelayed(captureTimeout, CAPTURE_TIMEOUT_MS);
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onQrVisible() {
+        send("qr_visible", null);
+    }
+
+    @Override
+    public void onQrParsed(String ssid, String password) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("ssid", ssid);
+        args.put("password", password);
+        send("qr_parsed", args);
+        mainHandler.post(this::stopSelf);
+    }
+
+    @Override
+    public void onCaptureBlocked() {
+        send("capture_blocked", null);
+    }
+
+    private void sendFailure(String reason) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("reason", reason);
+        send("failure", args);
+    }
+
+    private void send(String method, Object args) {
+        // Pipeline callbacks arrive on the capture thread; channels must be used on the main thread.
+        mainHandler.post(() -> {
+            MethodChannel channel = connectivityChannel;
+            if (channel != null) {
+                channel.invokeMethod(method, args);
+            }
+        });
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "Screen Capture Channel",
+                    NotificationManager.IMPORTANCE_LOW
+            );
+            channel.setDescription("Used while reading the Wi-Fi QR code");
+            getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        mainHandler.removeCallbacks(captureTimeout);
+        if (pipeline != null) {
+            pipeline.stop();
+            pipeline = null;
+        }
+        if (projection != null) {
+            projection.unregisterCallback(projectionCallback);
+            projection.stop();
+            projection = null;
+        }
+        if (instance == this) instance = null;
+        Log.d(TAG, "Service destroyed");
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
@@ -9,15 +9,15 @@ import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import ai.picovoice.eagle.Eagle;
 import ai.picovoice.eagle.EagleException;
@@ -33,57 +33,259 @@ public class VoiceIdService {
     private static final int ENCODING = AudioFormat.ENCODING_PCM_16BIT;
     private static final int BUFFER_SIZE = AudioRecord.getMinBufferSize(SAMPLE_RATE, CHANNELS, ENCODING);
     private static final int FRAME_LENGTH = 512;
-    private static final String PROFILE_FILE = "voice_profile.bin";
-    private static final int RECORD_DURATION_SECONDS = 7;
-    private static final int ENROLLMENT_MULTIPLIER = 4;
-
-    private Eagle eagle;
+    // حد أعلى لجلسة التسجيل؛ عادةً تتوقف قبله عند وصول EagleProfiler إلى 100%.
+    private static final int MAX_ENROLL_DURATION_SECONDS = 30;
+    private static final float DEFAULT_VERIFY_THRESHOLD = 0.6f;
+    // نافذة الدرجات المتدحرجة للتحقق المتدفق: آخر ثانيتين تقريباً من الإطارات.
+    private static final int STREAM_WINDOW_FRAMES = SAMPLE_RATE * 2 / FRAME_LENGTH;
+    private static final int STREAM_MIN_FRAMES = STREAM_WINDOW_FRAMES / 4;
+
+    private final EagleEngineHolder engines;
+    private final VoiceProfileStore profileStore;
     private EagleProfiler eagleProfiler;
     private AudioRecord audioRecord;
-    private EagleProfile speakerProfile;
-    private boolean isRecording = false;
+    private volatile boolean isRecording = false;
+    // nabd/voiceid channel used to push enrollment progress to Dart.
+    private MethodChannel progressChannel;
+
+    // Streaming verification: يتم تغذيتها من خيط الالتقاط فقط.
+    private volatile boolean streamingEnabled = false;
+    private Eagle streamingEagle;
+    private int streamingGeneration = -1;
+    private final float[] streamScores = new float[STREAM_WINDOW_FRAMES];
+    private int streamScoreIndex = 0;
+    private int streamScoreCount = 0;
+
+    // سياسة التقييم قابلة للتبديل؛ نسخة منفصلة لكل مسار لأن السياسات تحتفظ بحالة.
+    private volatile VoiceScoringPolicy scoringPolicy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, DEFAULT_VERIFY_THRESHOLD);
+    private volatile VoiceScoringPolicy streamingPolicy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, DEFAULT_VERIFY_THRESHOLD);
+    private final FrameVerifier frameVerifier = new FrameVerifier(FRAME_LENGTH);
 
     public VoiceIdService(Context context) {
+        engines = EagleEngineHolder.getInstance(context);
+        profileStore = VoiceProfileStore.getInstance(context.getFilesDir());
+    }
+
+    /** Loads the saved profile and warms Eagle in the background, off the wake path. */
+    public void preload(Context context, String accessKey) {
+        engines.setAccessKey(accessKey);
+        ensureProfileLoaded(context);
+        engines.preload();
+    }
+
+    /**
+     * Reads the stored speakers into the shared engine holder without an access key, so the
+     * first verification or enrollment does not pay for the file read. Safe off the UI thread.
+     */
+    public void warmProfiles() {
+        ensureProfileLoaded(null);
+    }
+
+    // EagleEngineHolder هو المرجع المشترك للمتحدثين الحاليين بين نسخ VoiceIdService في العملية.
+    private boolean ensureProfileLoaded(Context context) {
+        if (engines.hasSpeakerProfiles()) {
+            return true;
+        }
+        return reloadSpeakerProfiles();
+    }
+
+    // يقرأ كل المتحدثين من المخزن (من الذاكرة بعد أول تحميل) ويسلمهم إلى Eagle.
+    private boolean reloadSpeakerProfiles() {
+        try {
+            Map<String, byte[]> stored = profileStore.getProfiles();
+            String corruption = profileStore.takeCorruptionReport();
+            if (corruption != null) {
+                Log.e(TAG, "Voice profile store was corrupt and moved aside: " + corruption);
+            }
+            EagleProfile[] profiles = new EagleProfile[stored.size()];
+            int i = 0;
+            for (byte[] bytes : stored.values()) {
+                profiles[i++] = new EagleProfile(bytes);
+            }
+            engines.setSpeakerProfiles(profiles);
+            Log.d(TAG, "Loaded " + profiles.length + " speaker profile(s)");
+            return profiles.length > 0;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to load speaker profiles: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    public void setProgressChannel(MethodChannel channel) {
+        progressChannel = channel;
+    }
+
+    private void reportEnrollProgress(float percentage, String feedback) {
+        MethodChannel channel = progressChannel;
+        if (channel == null) return;
+        Map<String, Object> args = new HashMap<>();
+        args.put("percentage", (double) percentage);
+        args.put("feedback", feedback);
+        runOnUiThread(() -> channel.invokeMethod("onEnrollProgress", args));
+    }
+
+    public void onTrimMemory(int level) {
+        engines.onTrimMemory(level);
+    }
+
+    /**
+     * Selects the scoring policy by name (max, topk, sequential), its decision threshold and
+     * the evidence bounds used by the sequential policy.
+     */
+    public void setScoringPolicy(String name, float threshold, float acceptBound, float rejectBound) {
+        scoringPolicy = VoiceScoringPolicy.create(name, threshold, acceptBound, rejectBound);
+        streamingPolicy = VoiceScoringPolicy.create(name, threshold, acceptBound, rejectBound);
+        Log.d(TAG, "Scoring policy set to " + name + " (threshold " + threshold
+                + ", bounds " + acceptBound + "/" + rejectBound + ")");
+    }
+
+    /**
+     * Enables per-frame scoring so the decision is ready when the wake word fires. The
+     * capture thread picks up a warm engine from {@link EagleEngineHolder} once one is
+     * ready, and swaps it when the speaker profile changes. Returns false if no profile is
+     * enrolled; callers then fall back to {@link #verifyVoice}.
+     */
+    public boolean startStreamingVerification(Context context, String accessKey) {
+        preload(context, accessKey);
+        if (!engines.hasSpeakerProfiles()) {
+            Log.d(TAG, "Streaming verification disabled: no voice profile enrolled");
+            return false;
+        }
+        streamingEnabled = true;
+        Log.d(TAG, "Streaming verification started");
+        return true;
+    }
+
+    // تستدعى بعد توقف خيط الالتقاط.
+    public void stopStreamingVerification() {
+        streamingEnabled = false;
+        if (streamingEagle != null) {
+            engines.release(streamingEagle);
+            streamingEagle = null;
+            streamingGeneration = -1;
+            Log.d(TAG, "Streaming verification stopped");
+        }
+        resetStreamingWindow();
+    }
+
+    public boolean isStreamingActive() {
+        return streamingEnabled && streamingEagle != null;
+    }
+
+    // يبدل محرك التدفق إذا تغير ملف المتحدث؛ لا يبني محركاً على خيط الالتقاط أبداً.
+    private boolean ensureStreamingEngine() {
+        if (streamingEagle != null && streamingGeneration == engines.getGeneration()) {
+            return true;
+        }
+        if (streamingEagle != null) {
+            // تغيّر المتحدثون: درجات المحرك القديم تخص ملفات لم تعد موجودة، فلا نستمر في استخدامه.
+            engines.release(streamingEagle);
+            streamingEagle = null;
+            streamingGeneration = -1;
+            streamScoreIndex = 0;
+            streamScoreCount = 0;
+        }
+        if (!engines.hasSpeakerProfiles()) {
+            // لا يوجد متحدث مسجل بعد الحذف: لا شيء يمكن قبوله.
+            return false;
+        }
+        Eagle warm = engines.tryAcquireWarm();
+        if (warm == null) {
+            return false;
+        }
+        if (warm.getFrameLength() != FRAME_LENGTH) {
+            Log.w(TAG, "Streaming verification disabled: Eagle frame length " + warm.getFrameLength());
+            engines.release(warm);
+            streamingEnabled = false;
+            return false;
+        }
+        streamingEagle = warm;
+        streamingGeneration = engines.generationOf(warm);
+        streamScoreIndex = 0;
+        streamScoreCount = 0;
+        Log.d(TAG, "Streaming verification engine ready (generation " + streamingGeneration + ")");
+        return true;
+    }
+
+    // يستدعى من خيط الالتقاط لكل إطار بطول FRAME_LENGTH.
+    public void processStreamingFrame(short[] frame) {
+        if (!streamingEnabled || !ensureStreamingEngine()) return;
+        try {
+            float[] scores = streamingEagle.process(frame);
+            streamScores[streamScoreIndex] = FrameVerifier.bestScore(scores);
+            streamScoreIndex = (streamScoreIndex + 1) % STREAM_WINDOW_FRAMES;
+            if (streamScoreCount < STREAM_WINDOW_FRAMES) streamScoreCount++;
+        } catch (EagleException e) {
+            Log.e(TAG, "Streaming verification error: " + e.getMessage(), e);
+        }
+    }
+
+    // يجب استدعاؤها عند انقطاع الالتقاط حتى لا تختلط درجات قديمة بالجديدة.
+    public void resetStreamingWindow() {
+        streamScoreIndex = 0;
+        streamScoreCount = 0;
+        if (streamingEagle != null) {
+            try {
+                streamingEagle.reset();
+            } catch (EagleException e) {
+                Log.e(TAG, "Failed to reset streaming Eagle: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public boolean isStreamingDecisionReady() {
+        return isStreamingActive() && streamScoreCount >= STREAM_MIN_FRAMES;
+    }
+
+    /**
+     * Runs the scoring policy over the rolling window, oldest frame first, and returns
+     * whether the speaker matched. Call from the capture thread.
+     */
+    public boolean getStreamingDecision() {
+        VoiceScoringPolicy policy = streamingPolicy;
+        policy.reset(streamScoreCount);
+        int start = (streamScoreIndex - streamScoreCount + STREAM_WINDOW_FRAMES) % STREAM_WINDOW_FRAMES;
+        int decision = VoiceScoringPolicy.UNDECIDED;
+        for (int i = 0; i < streamScoreCount && decision == VoiceScoringPolicy.UNDECIDED; i++) {
+            decision = policy.onScore(streamScores[(start + i) % STREAM_WINDOW_FRAMES]);
+        }
+        boolean matched = decision == VoiceScoringPolicy.UNDECIDED ? policy.decide() : decision == VoiceScoringPolicy.ACCEPT;
+        if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Streaming verification score: " + policy.aggregate() + " over " + policy.getFrameCount() + " frames");
+        NoorMetrics.VERIFY_STREAMING.inc();
+        recordDecision(policy, matched);
+        return matched;
     }
 
     public void enrollVoice(Context context, String accessKey, MethodChannel.Result result) {
+        enrollVoice(context, accessKey, VoiceProfileStore.DEFAULT_SPEAKER, result);
+    }
+
+    // إعادة تسجيل متحدث تستبدل ملفه فقط؛ بقية أفراد المنزل يبقون مسجلين.
+    public void enrollVoice(Context context, String accessKey, String speakerName, MethodChannel.Result result) {
         if (ActivityCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             Log.e(TAG, "Microphone permission not granted");
             runOnUiThread(() -> result.error("PERMISSION_ERROR", "Microphone permission not granted", null));
             return;
         }
-
-        if (isProfileEnrolled(context)) {
-            Log.d(TAG, "Voice profile already exists. Resetting it.");
-            resetEnrollment(context, new MethodChannel.Result() {
-                @Override
-                public void success(Object o) {
-                    Log.d(TAG, "Profile reset success. Starting new enrollment.");
-                    startEnrollment(context, result, accessKey);
-                }
-
-                @Override
-                public void error(String s, String s1, Object o) {
-                    Log.e(TAG, "Profile reset failed.");
-                    runOnUiThread(() -> result.error(s, s1, o));
-                }
-
-                @Override
-                public void notImplemented() {
-                }
-            });
-        } else {
-            startEnrollment(context, result, accessKey);
+        String name = speakerName == null ? VoiceProfileStore.DEFAULT_SPEAKER : speakerName;
+        try {
+            // نرفض الاسم قبل التسجيل بدل أن يفشل الحفظ بعد انتهاء الكلام.
+            VoiceProfileStore.checkName(name);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid speaker name: " + e.getMessage());
+            runOnUiThread(() -> result.error("INVALID_NAME", e.getMessage(), null));
+            return;
         }
+
+        startEnrollment(context, result, accessKey, name);
     }
 
-    private void startEnrollment(Context context, MethodChannel.Result result, String accessKey) {
+    private void startEnrollment(Context context, MethodChannel.Result result, String accessKey, String speakerName) {
         try {
-            Log.d(TAG, "Initializing EagleProfiler...");
-            eagleProfiler = new EagleProfiler.Builder()
-                    .setAccessKey(accessKey)
-                    .build(context);
-            Log.d(TAG, "EagleProfiler initialized successfully");
+            Log.d(TAG, "Acquiring EagleProfiler...");
+            engines.setAccessKey(accessKey);
+            eagleProfiler = engines.acquireProfiler();
+            Log.d(TAG, "EagleProfiler ready");
 
             Log.d(TAG, "Starting audio recording...");
             audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, CHANNELS, ENCODING, BUFFER_SIZE);
@@ -99,52 +301,51 @@ public class VoiceIdService {
 
             new Thread(() -> {
                 try {
-                    int totalSamples = SAMPLE_RATE * RECORD_DURATION_SECONDS;
-                    short[] enrollBuffer = new short[totalSamples];
-                    int totalSamplesRead = 0;
-
-                    Log.d(TAG, "Recording audio for " + RECORD_DURATION_SECONDS + " seconds...");
-                    while (isRecording && totalSamplesRead < totalSamples) {
-                        short[] frameBuffer = new short[FRAME_LENGTH];
-                        int numRead = audioRecord.read(frameBuffer, 0, frameBuffer.length);
+                    if (eagleProfiler == null) {
+                        Log.e(TAG, "EagleProfiler is null before enrollment");
+                        runOnUiThread(() -> result.error("ENROLL_ERROR", "EagleProfiler is null", null));
+                        return;
+                    }
+
+                    // تسجيل متدفق: نملأ مقطعاً واحداً بحجم الحد الأدنى الذي يقبله EagleProfiler ونمرره فور اكتماله،
+                    // فتبقى الذاكرة ثابتة ويتوقف التسجيل بمجرد الوصول إلى 100%.
+                    int chunkSamples = eagleProfiler.getMinEnrollSamples();
+                    EnrollmentChunker chunker = new EnrollmentChunker(chunkSamples);
+                    int maxSamples = SAMPLE_RATE * MAX_ENROLL_DURATION_SECONDS;
+                    float percentage = 0f;
+
+                    Log.d(TAG, "Streaming enrollment in chunks of " + chunkSamples + " samples, up to " + MAX_ENROLL_DURATION_SECONDS + " seconds...");
+                    while (isRecording && percentage < 100f && chunker.getTotalSamples() < maxSamples) {
+                        int numRead = audioRecord.read(chunker.getBuffer(), chunker.getFill(), chunker.getRemaining());
                         if (numRead <= 0) {
                             Log.e(TAG, "Failed to read audio data: " + numRead);
                             runOnUiThread(() -> result.error("AUDIO_READ_ERROR", "Failed to read audio data", null));
                             return;
                         }
-                        int samplesToCopy = Math.min(numRead, totalSamples - totalSamplesRead);
-                        System.arraycopy(frameBuffer, 0, enrollBuffer, totalSamplesRead, samplesToCopy);
-                        totalSamplesRead += samplesToCopy;
-                    }
-                    Log.d(TAG, "Finished recording audio, total samples read: " + totalSamplesRead);
+                        if (!chunker.commit(numRead)) {
+                            continue;
+                        }
 
-                    if (totalSamplesRead < totalSamples) {
-                        runOnUiThread(() -> result.error("RECORDING_ERROR", "Not enough audio recorded.", null));
-                        return;
+                        EagleProfilerEnrollResult enrollResult = eagleProfiler.enroll(chunker.getBuffer());
+                        percentage = enrollResult.getPercentage();
+                        Log.d(TAG, "Enrollment percentage: " + percentage + " (" + enrollResult.getFeedback() + ")");
+                        reportEnrollProgress(percentage, enrollResult.getFeedback().name());
                     }
+                    Log.d(TAG, "Finished recording audio, total samples read: " + chunker.getTotalSamples());
 
-                    int multipliedSamples = totalSamples * ENROLLMENT_MULTIPLIER;
-                    short[] multipliedEnrollBuffer = new short[multipliedSamples];
-                    for (int i = 0; i < ENROLLMENT_MULTIPLIER; i++) {
-                        System.arraycopy(enrollBuffer, 0, multipliedEnrollBuffer, i * totalSamples, totalSamples);
+                    if (percentage < 100f) {
+                        final float reached = percentage;
+                        runOnUiThread(() -> result.error("RECORDING_ERROR", "Not enough speech recorded (" + reached + "%).", null));
+                        return;
                     }
-                    Log.d(TAG, "Multiplied audio buffer to " + multipliedSamples + " samples (" + (multipliedSamples / SAMPLE_RATE) + " seconds)");
 
-                    Log.d(TAG, "Starting voice enrollment with multiplied audio...");
                     try {
-                        if (eagleProfiler == null) {
-                            Log.e(TAG, "EagleProfiler is null before enrollment");
-                            runOnUiThread(() -> result.error("ENROLL_ERROR", "EagleProfiler is null", null));
-                            return;
-                        }
-
-                        EagleProfilerEnrollResult feedbackResult = eagleProfiler.enroll(multipliedEnrollBuffer);
-                        Log.d(TAG, "Enrollment percentage after single pass: " + feedbackResult.getPercentage());
-
-                        speakerProfile = eagleProfiler.export();
-
-                        saveProfile(context, speakerProfile);
+                        EagleProfile speakerProfile = eagleProfiler.export();
                         byte[] profileBytes = speakerProfile.getBytes();
+
+                        profileStore.put(speakerName, profileBytes);
+                        reloadSpeakerProfiles();
+                        Log.d(TAG, "Voice profile saved for speaker '" + speakerName + "'");
                         runOnUiThread(() -> result.success(profileBytes)); // إرسال البيانات الثنائية إلى Dart
 
                     } catch (EagleException e) {
@@ -171,17 +372,9 @@ public class VoiceIdService {
 
     public void resetEnrollment(Context context, MethodChannel.Result result) {
         try {
-            File file = new File(context.getFilesDir(), PROFILE_FILE);
-            if (file.exists()) {
-                file.delete();
-            }
-            if (speakerProfile != null) {
-                speakerProfile = null;
-            }
-            if (eagle != null) {
-                eagle.delete();
-                eagle = null;
-            }
+            profileStore.clear();
+            // لا نحذف النموذج الأصلي هنا؛ المحركات القديمة تتقاعد عبر EagleEngineHolder.
+            engines.setSpeakerProfiles(null);
             Log.d(TAG, "Enrollment reset successfully");
             result.success("Enrollment reset successfully");
         } catch (Exception e) {
@@ -190,28 +383,38 @@ public class VoiceIdService {
         }
     }
 
+    public void removeSpeaker(Context context, String speakerName, MethodChannel.Result result) {
+        try {
+            boolean removed = profileStore.remove(speakerName);
+            reloadSpeakerProfiles();
+            result.success(removed);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to remove speaker: " + e.getMessage(), e);
+            result.error("RESET_ERROR", "Failed to remove speaker: " + e.getMessage(), null);
+        }
+    }
+
+    public List<String> listSpeakers(Context context) {
+        try {
+            return new ArrayList<>(profileStore.getProfiles().keySet());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to list speakers: " + e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
     public boolean isProfileEnrolled(Context context) {
-        File profileFile = new File(context.getFilesDir(), PROFILE_FILE);
-        return profileFile.exists();
+        try {
+            return !profileStore.isEmpty();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read voice profile store: " + e.getMessage(), e);
+            return false;
+        }
     }
 
-    public void saveVoiceProfile(Context context, List<Integer> voiceProfileBytes, MethodChannel.Result result) {
+    public void saveVoiceProfile(Context context, byte[] voiceProfileBytes, MethodChannel.Result result) {
         try {
-            // Convert List<Integer> to byte[]
-            byte[] bytes = new byte[voiceProfileBytes.size()];
-            for (int i = 0; i < voiceProfileBytes.size(); i++) {
-                bytes[i] = voiceProfileBytes.get(i).byteValue();
-            }
-            
-            // Create EagleProfile from bytes
-            EagleProfile profile = new EagleProfile(bytes);
-            
-            // Save to local file
-            saveProfile(context, profile);
-            
-            // Store in memory for immediate use
-            speakerProfile = profile;
-            
+            storeVoiceProfile(context, voiceProfileBytes);
             Log.d(TAG, "Voice profile saved successfully from login");
             runOnUiThread(() -> result.success(true));
         } catch (Exception e) {
@@ -220,30 +423,29 @@ public class VoiceIdService {
         }
     }
 
-    private void saveProfile(Context context, EagleProfile profile) throws IOException {
-        File file = new File(context.getFilesDir(), PROFILE_FILE);
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(profile.getBytes());
-            Log.d(TAG, "Voice profile saved successfully locally");
-        }
-    }
-
-    private void loadSpeakerProfile(Context context) {
+    // مسار القناة الثنائية: يصل الملف كـ ByteBuffer مباشر بدون قائمة أعداد مغلفة.
+    public boolean saveVoiceProfile(Context context, ByteBuffer voiceProfile) {
         try {
-            File file = new File(context.getFilesDir(), PROFILE_FILE);
-            if (file.exists()) {
-                FileInputStream fis = new FileInputStream(file);
-                byte[] data = new byte[(int) file.length()];
-                fis.read(data);
-                fis.close();
-                speakerProfile = new EagleProfile(data);
-                Log.d(TAG, "Speaker profile loaded successfully");
-            }
+            storeVoiceProfile(context, ProfileBytes.from(voiceProfile));
+            Log.d(TAG, "Voice profile saved successfully from binary channel");
+            return true;
         } catch (Exception e) {
-            Log.e(TAG, "Failed to load speaker profile: " + e.getMessage(), e);
+            Log.e(TAG, "Failed to save voice profile: " + e.getMessage(), e);
+            return false;
         }
     }
 
+    private void storeVoiceProfile(Context context, byte[] bytes) throws IOException {
+        // Create EagleProfile from bytes (rejects malformed data before it reaches the store)
+        new EagleProfile(bytes);
+
+        // ملف المستخدم المسجل دخوله هو المتحدث الافتراضي
+        profileStore.put(VoiceProfileStore.DEFAULT_SPEAKER, bytes);
+
+        // Store in memory for immediate use
+        reloadSpeakerProfiles();
+    }
+
     private void stopRecording() {
         isRecording = false;
         if (audioRecord != null) {
@@ -257,70 +459,96 @@ public class VoiceIdService {
             }
         }
         if (eagleProfiler != null) {
-            try {
-                eagleProfiler.delete();
-            } catch (Exception e) {
-                Log.e(TAG, "Error deleting EagleProfiler: " + e.getMessage(), e);
-            } finally {
-                eagleProfiler = null;
-            }
+            // يبقى EagleProfiler دافئاً لإعادة التسجيل التالية بدلاً من حذفه.
+            engines.releaseProfiler(eagleProfiler);
+            eagleProfiler = null;
         }
     }
 
     public void verifyVoice(Context context, short[] audioBuffer, String accessKey, MethodChannel.Result result) {
-        if (speakerProfile == null) {
-            Log.e(TAG, "No voice profile enrolled, attempting to load from file...");
-            loadSpeakerProfile(context);
-            if (speakerProfile == null) {
-                Log.e(TAG, "Voice profile is not enrolled or loaded.");
-                runOnUiThread(() -> result.error("NO_PROFILE", "No voice profile enrolled", null));
-                return;
-            }
-        }
+        verifyVoice(context, audioBuffer, audioBuffer == null ? 0 : audioBuffer.length, accessKey, result);
+    }
 
-        if (eagle == null) {
-            try {
-                eagle = new Eagle.Builder()
-                        .setAccessKey(accessKey)
-                        .setSpeakerProfiles(new EagleProfile[]{speakerProfile})
-                        .build(context);
-                Log.d(TAG, "Eagle initialized for verification.");
-            } catch (EagleException e) {
-                Log.e(TAG, "Failed to initialize Eagle for verification: " + e.getMessage(), e);
-                runOnUiThread(() -> result.error("VERIFY_INIT_ERROR", "Failed to initialize Eagle for verification", null));
-                return;
-            }
+    // numSamples: عدد العينات الصالحة في بداية audioBuffer (قد تكون المصفوفة معاد استخدامها).
+    public void verifyVoice(Context context, short[] audioBuffer, int numSamples, String accessKey, MethodChannel.Result result) {
+        if (!ensureProfileLoaded(context)) {
+            Log.e(TAG, "Voice profile is not enrolled or loaded.");
+            runOnUiThread(() -> result.error("NO_PROFILE", "No voice profile enrolled", null));
+            return;
         }
 
-        if (audioBuffer == null || audioBuffer.length == 0) {
+        if (audioBuffer == null || numSamples <= 0) {
             Log.e(TAG, "Audio buffer is empty or null");
             runOnUiThread(() -> result.error("INVALID_BUFFER", "Audio buffer is empty or null", null));
             return;
         }
 
+        long startMs = SystemClock.uptimeMillis();
+        engines.setAccessKey(accessKey);
+        Eagle eagle;
+        WakeTrace.begin("Noor.verify.acquire");
         try {
-            int numFrames = audioBuffer.length / FRAME_LENGTH;
-            float highestScore = 0;
-
-            for (int i = 0; i < numFrames; i++) {
-                short[] frame = new short[FRAME_LENGTH];
-                System.arraycopy(audioBuffer, i * FRAME_LENGTH, frame, 0, FRAME_LENGTH);
-                float[] scores = eagle.process(frame);
-                if (scores.length > 0 && scores[0] > highestScore) {
-                    highestScore = scores[0];
-                }
+            eagle = engines.acquire();
+        } catch (EagleException e) {
+            Log.e(TAG, "Failed to initialize Eagle for verification: " + e.getMessage(), e);
+            NoorMetrics.VERIFY_ERRORS.inc();
+            runOnUiThread(() -> result.error("VERIFY_INIT_ERROR", "Failed to initialize Eagle for verification", null));
+            return;
+        } finally {
+            WakeTrace.end();
+        }
+
+        try {
+            int numFrames = Math.min(numSamples, audioBuffer.length) / FRAME_LENGTH;
+            VoiceScoringPolicy policy = scoringPolicy;
+            // المحرك المعاد من المجمع تمت إعادة ضبطه، فالتوقف المبكر السابق لا يترك حالة متبقية.
+            WakeTrace.begin("Noor.verify.frames");
+            boolean matched;
+            try {
+                matched = frameVerifier.verify(audioBuffer, numSamples, new EagleFrameScorer(eagle), policy);
+            } finally {
+                WakeTrace.end();
             }
-            Log.d(TAG, "Voice verification score: " + highestScore);
-            if (highestScore > 0.6) {
-                Log.d(TAG, "Voice matched");
+            NoorMetrics.VERIFY_DURATION_MS.record(SystemClock.uptimeMillis() - startMs);
+            recordDecision(policy, matched);
+            if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice verification score: " + policy.aggregate() + " after " + policy.getFrameCount() + "/" + numFrames + " frames");
+            if (matched) {
+                if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice matched");
                 runOnUiThread(() -> result.success(true));
             } else {
-                Log.d(TAG, "Voice not matched");
+                if (BuildConfig.HOT_PATH_LOGS) Log.d(TAG, "Voice not matched");
                 runOnUiThread(() -> result.success(false));
             }
-        } catch (EagleException e) {
+        } catch (EagleException | IllegalArgumentException e) {
             Log.e(TAG, "Verification error: " + e.getMessage(), e);
+            NoorMetrics.VERIFY_ERRORS.inc();
             runOnUiThread(() -> result.error("VERIFY_ERROR", e.getMessage(), null));
+        } finally {
+            engines.release(eagle);
+        }
+    }
+
+    private static void recordDecision(VoiceScoringPolicy policy, boolean matched) {
+        NoorMetrics.VERIFY_SCORE.record(Math.round(policy.aggregate() * 1000));
+        (matched ? NoorMetrics.VERIFY_ACCEPTED : NoorMetrics.VERIFY_REJECTED).inc();
+    }
+
+    /** Eagle behind the {@link FrameScorer} interface used by the core verification loop. */
+    private static final class EagleFrameScorer implements FrameScorer<EagleException> {
+        private final Eagle eagle;
+
+        EagleFrameScorer(Eagle eagle) {
+            this.eagle = eagle;
+        }
+
+        @Override
+        public int getFrameLength() {
+            return eagle.getFrameLength();
+        }
+
+        @Override
+        public float score(short[] frame) throws EagleException {
+            return FrameVerifier.bestScore(eagle.process(frame));
         }
     }
 
@@ -0,0 +1,84 @@
+package com.navia.navia;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trace points for the wake-to-UI path, for Perfetto/systrace captures with the app's
+ * atrace category enabled.
+ *
+ * A wake spans the capture thread, the verification thread, the main thread of the
+ * service, the accessibility service and MainActivity, so each stage is an async section
+ * keyed by one cookie per wake: {@link #WAKE} covers keyword to first Flutter frame, and
+ * {@link #STAGE_VERIFY} and {@link #STAGE_LAUNCH} split it. Synchronous work inside a stage
+ * uses plain {@link Trace#beginSection} sections. Async sections need API 29; below that
+ * only the synchronous sections are emitted.
+ */
+public final class WakeTrace {
+    public static final String WAKE = "Noor.wake";
+    public static final String STAGE_VERIFY = "Noor.wake.verify";
+    public static final String STAGE_LAUNCH = "Noor.wake.launch";
+
+    private static final AtomicInteger nextCookie = new AtomicInteger(1);
+    // Wakes are coalesced while one is being verified, so one active cookie is enough. It is
+    // swapped atomically: the capture, verification and main threads all touch it.
+    private static final AtomicInteger activeCookie = new AtomicInteger(0);
+
+    private WakeTrace() {
+    }
+
+    /** Keyword detected: opens {@link #WAKE} and {@link #STAGE_VERIFY}. */
+    public static void beginWake() {
+        int cookie = nextCookie.getAndIncrement();
+        beginAsync(WAKE, cookie);
+        int previous = activeCookie.getAndSet(cookie);
+        if (previous != 0) {
+            // الاستيقاظ السابق لم يصل إلى الواجهة (رفض أو انتهى بدون فتح).
+            endAsync(WAKE, previous);
+        }
+        beginAsync(STAGE_VERIFY, cookie);
+    }
+
+    /** Verification decided; a rejected wake ends here. */
+    public static void endVerify(boolean accepted) {
+        int cookie = activeCookie.get();
+        if (cookie == 0) return;
+        endAsync(STAGE_VERIFY, cookie);
+        if (accepted) {
+            beginAsync(STAGE_LAUNCH, cookie);
+        } else if (activeCookie.compareAndSet(cookie, 0)) {
+            // A newer wake may already own the slot; it closes this one in beginWake().
+            endAsync(WAKE, cookie);
+        }
+    }
+
+    /** MainActivity drew its first Flutter frame; closes the wake if one is open. */
+    public static void endWake() {
+        int cookie = activeCookie.getAndSet(0);
+        if (cookie == 0) return;
+        endAsync(STAGE_LAUNCH, cookie);
+        endAsync(WAKE, cookie);
+    }
+
+    public static void begin(String name) {
+        Trace.beginSection(name);
+    }
+
+    public static void end() {
+        Trace.endSection();
+    }
+
+    private static void beginAsync(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    private static void endAsync(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.navia.navia;
+
+import android.graphics.PixelFormat;
+import android.hardware.display.DisplayManager;
+import android.hardware.display.VirtualDisplay;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.projection.MediaProjection;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Mirrors the screen into an ImageReader and decodes the Settings share-network QR code.
+ *
+ * The virtual display only produces images when the screen content changes, and each
+ * image is first compared against the previous one with a sparse luma signature, so ML Kit
+ * runs only on frames that actually differ. The ImageReader holds two images, and the
+ * luma plane handed to ML Kit lives in preallocated NV21 buffers: no Bitmap is created
+ * per frame. While a decode is in flight the newest changed frame is kept in a second
+ * buffer and decoded as soon as the current decode completes; older pending frames are
+ * overwritten, so at most one frame is ever queued.
+ */
+public final class WifiQrCapturePipeline {
+    private static final String TAG = "WifiQrCapture";
+    private static final int MAX_IMAGES = 2;
+    // QR codes on the share screen are large; this width is plenty for ML Kit.
+    private static final int MAX_CAPTURE_WIDTH = 720;
+    private static final int SIGNATURE_GRID = 32;
+    // FLAG_SECURE windows are mirrored as solid black.
+    private static final int BLACK_LUMA = 8;
+    private static final int BLOCKED_FRAME_COUNT = 3;
+
+    public interface Listener {
+        void onQrVisible();
+
+        void onQrParsed(String ssid, String password);
+
+        void onCaptureBlocked();
+    }
+
+    private final MediaProjection projection;
+    private final Listener listener;
+    private final int width;
+    private final int height;
+    private final int densityDpi;
+
+    private HandlerThread thread;
+    private volatile Handler handler;
+    private Executor executor;
+    private ImageReader imageReader;
+    private VirtualDisplay virtualDisplay;
+    private BarcodeScanner scanner;
+
+    // Owned by the capture thread. nv21 is what ML Kit reads; pendingNv21 holds the newest
+    // frame that arrived while a decode was in flight.
+    private byte[] nv21;
+    private byte[] pendingNv21;
+    private boolean hasPendingFrame = false;
+    private boolean hasLuma = false;
+    private boolean redecodeRequested = false;
+    private byte[] row;
+    private long lastSignature = 0;
+    private boolean forceNextFrame = true;
+    private boolean decodeInFlight = false;
+    private boolean qrVisibleReported = false;
+    private boolean blockedReported = false;
+    private boolean finished = false;
+    private int blackFrames = 0;
+
+    private long framesReceived = 0;
+    private long framesUnchanged = 0;
+    private long framesDropped = 0;
+    private long framesDecoded = 0;
+
+    public WifiQrCapturePipeline(MediaProjection projection, DisplayMetrics metrics, Listener listener) {
+        this.projection = projection;
+        this.listener = listener;
+        float scale = Math.min(1f, (float) MAX_CAPTURE_WIDTH / metrics.widthPixels);
+        // NV21 needs even dimensions.
+        width = Math.round(metrics.widthPixels * scale) & ~1;
+        height = Math.round(metrics.heightPixels * scale) & ~1;
+        densityDpi = Math.max(1, Math.round(metrics.densityDpi * scale));
+        nv21 = newNv21();
+    }
+
+    private byte[] newNv21() {
+        byte[] buffer = new byte[width * height * 3 / 2];
+        // Chroma stays neutral grey; only luma matters for QR detection.
+        Arrays.fill(buffer, width * height, buffer.length, (byte) 128);
+        return buffer;
+    }
+
+    public void start() {
+        thread = new HandlerThread("QrCapture");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        executor = handler::post;
+        scanner = BarcodeScanning.getClient(new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(Barcode.FORMAT_QR_CODE)
+                .build());
+
+        imageReader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, MAX_IMAGES);
+        imageReader.setOnImageAvailableListener(this::onImageAvailable, handler);
+        virtualDisplay = projection.createVirtualDisplay("WifiQrCapture", width, height, densityDpi,
+                DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR, imageReader.getSurface(), null, handler);
+        Log.d(TAG, "Capture started " + width + "x" + height);
+    }
+
+    /**
+     * Decodes the last captured frame again, and the next frame even if it looks identical.
+     * The virtual display may not produce another image while the screen is static.
+     */
+    public void requestDecode() {
+        Handler h = handler;
+        if (h == null) return;
+        h.post(() -> {
+            forceNextFrame = true;
+            if (finished || !hasLuma) return;
+            if (decodeInFlight) {
+                redecodeRequested = true;
+            } else {
+                decode();
+            }
+        });
+    }
+
+    public void stop() {
+        Handler h = handler;
+        if (h == null) return;
+        handler = null;
+        h.post(() -> {
+            finished = true;
+            if (virtualDisplay != null) {
+                virtualDisplay.release();
+                virtualDisplay = null;
+            }
+            if (imageReader != null) {
+                imageReader.close();
+                imageReader = null;
+            }
+            if (scanner != null) {
+                scanner.close();
+                scanner = null;
+            }
+            Log.d(TAG, "Capture stopped (" + statsString() + ")");
+            thread.quitSafely();
+        });
+    }
+
+    private void onImageAvailable(ImageReader reader) {
+        Image image = reader.acquireLatestImage();
+        if (image == null) return;
+        try {
+            framesReceived++;
+            if (finished) return;
+            Image.Plane plane = image.getPlanes()[0];
+            ByteBuffer pixels = plane.getBuffer();
+            int rowStride = plane.getRowStride();
+            int pixelStride = plane.getPixelStride();
+
+            long signature = signature(pixels, rowStride, pixelStride);
+            if (signature == 0) {
+                // إطار أسود بالكامل: الشاشة محمية بـ FLAG_SECURE ولا يمكن التقاطها.
+                if (++blackFrames >= BLOCKED_FRAME_COUNT && !blockedReported) {
+                    blockedReported = true;
+                    listener.onCaptureBlocked();
+                }
+                return;
+            }
+            blackFrames = 0;
+            if (!forceNextFrame && signature == lastSignature) {
+                framesUnchanged++;
+                return;
+            }
+            forceNextFrame = false;
+            lastSignature = signature;
+
+            if (decodeInFlight) {
+                // ML Kit may still be reading nv21; keep only the newest frame for later.
+                if (pendingNv21 == null) pendingNv21 = newNv21();
+                if (hasPendingFrame) framesDropped++;
+                fillLuma(pendingNv21, pixels, rowStride, pixelStride);
+                hasPendingFrame = true;
+                return;
+            }
+            fillLuma(nv21, pixels, rowStride, pixelStride);
+            hasLuma = true;
+            decode();
+        } finally {
+            image.close();
+        }
+    }
+
+    private void decode() {
+        decodeInFlight = true;
+        redecodeRequested = false;
+        framesDecoded++;
+        InputImage input = InputImage.fromByteArray(nv21, width, height, 0, InputImage.IMAGE_FORMAT_NV21);
+        scanner.process(input)
+                .addOnSuccessListener(executor, this::onBarcodes)
+                .addOnFailureListener(executor, e -> Log.w(TAG, "QR decode failed: " + e.getMessage()))
+                .addOnCompleteListener(executor, task -> onDecodeComplete());
+    }
+
+    private void onDecodeComplete() {
+        decodeInFlight = false;
+        if (finished || scanner == null) return;
+        if (hasPendingFrame) {
+            byte[] decoded = nv21;
+            nv21 = pendingNv21;
+            pendingNv21 = decoded;
+            hasPendingFrame = false;
+            decode();
+        } else if (redecodeRequested) {
+            decode();
+        }
+    }
+
+    private void onBarcodes(List<Barcode> barcodes) {
+        if (finished) return;
+        for (Barcode barcode : barcodes) {
+            if (!qrVisibleReported) {
+                qrVisibleReported = true;
+                listener.onQrVisible();
+            }
+            String ssid = null;
+            String password = null;
+            Barcode.WiFi wifi = barcode.getWifi();
+            if (barcode.getValueType() == Barcode.TYPE_WIFI && wifi != null) {
+                ssid = wifi.getSsid();
+                password = wifi.getPassword();
+            }
+            if (ssid == null || ssid.isEmpty()) {
+                WifiQrPayload payload = WifiQrPayload.parse(barcode.getRawValue());
+                if (payload != null) {
+                    ssid = payload.ssid;
+                    password = payload.password;
+                }
+            }
+            if (ssid != null && !ssid.isEmpty()) {
+                finished = true;
+                Log.d(TAG, "Wi-Fi QR parsed after " + framesDecoded + " decodes");
+                listener.onQrParsed(ssid, password == null ? "" : password);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hashes a sparse grid of quantized luma samples. Returns 0 only for an all-black frame,
+     * so the same pass doubles as the FLAG_SECURE check.
+     */
+    private long signature(ByteBuffer pixels, int rowStride, int pixelStride) {
+        long hash = 0;
+        boolean anyLight = false;
+        for (int gy = 0; gy < SIGNATURE_GRID; gy++) {
+            int rowOffset = (gy * (height - 1) / (SIGNATURE_GRID - 1)) * rowStride;
+            for (int gx = 0; gx < SIGNATURE_GRID; gx++) {
+                int offset = rowOffset + (gx * (width - 1) / (SIGNATURE_GRID - 1)) * pixelStride;
+                int luma = luma(pixels.get(offset), pixels.get(offset + 1), pixels.get(offset + 2));
+                if (luma > BLACK_LUMA) anyLight = true;
+                // Quantize so compositor noise does not count as a change.
+                hash = hash * 31 + (luma >> 3);
+            }
+        }
+        return anyLight ? (hash == 0 ? 1 : hash) : 0;
+    }
+
+    private void fillLuma(byte[] target, ByteBuffer pixels, int rowStride, int pixelStride) {
+        int rowBytes = (width - 1) * pixelStride + 4;
+        if (row == null || row.length < rowBytes) {
+            row = new byte[rowBytes];
+        }
+        int out = 0;
+        for (int y = 0; y < height; y++) {
+            pixels.position(y * rowStride);
+            pixels.get(row, 0, rowBytes);
+            for (int x = 0, in = 0; x < width; x++, in += pixelStride) {
+                target[out++] = (byte) luma(row[in], row[in + 1], row[in + 2]);
+            }
+        }
+        pixels.rewind();
+    }
+
+    private static int luma(byte r, byte g, byte b) {
+        return ((r & 0xFF) * 77 + (g & 0xFF) * 150 + (b & 0xFF) * 29) >> 8;
+    }
+
+    private String statsString() {
+        return "frames=" + framesReceived + ", unchanged=" + framesUnchanged
+                + ", dropped=" + framesDropped + ", decoded=" + framesDecoded;
+    }
+}
@@ -0,0 +1,76 @@
+package com.navia.navia;
+
+/**
+ * Parses the {@code WIFI:} payload that Settings puts in its share-network QR code, e.g.
+ * {@code WIFI:T:WPA;S:Home\;Net;P:secret;H:false;;}. Fields are separated by unescaped
+ * semicolons; a backslash escapes {@code \ ; , : "}.
+ */
+public final class WifiQrPayload {
+    private static final String PREFIX = "WIFI:";
+
+    public final String ssid;
+    public final String password;
+    public final String security;
+    public final boolean hidden;
+
+    private WifiQrPayload(String ssid, String password, String security, boolean hidden) {
+        this.ssid = ssid;
+        this.password = password;
+        this.security = security;
+        this.hidden = hidden;
+    }
+
+    /** Returns the parsed network, or null if this is not a Wi-Fi QR payload with an SSID. */
+    public static WifiQrPayload parse(String raw) {
+        if (raw == null || !raw.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+            return null;
+        }
+        String ssid = null;
+        String password = "";
+        String security = "";
+        boolean hidden = false;
+
+        StringBuilder field = new StringBuilder();
+        int length = raw.length();
+        for (int i = PREFIX.length(); i <= length; i++) {
+            char c = i < length ? raw.charAt(i) : ';';
+            if (c == '\\' && i + 1 < length) {
+                field.append(raw.charAt(++i));
+                continue;
+            }
+            if (c != ';') {
+                field.append(c);
+                continue;
+            }
+            // نهاية حقل: المفتاح قبل أول نقطتين والقيمة بعدها.
+            int colon = keySeparator(field);
+            if (colon > 0) {
+                String key = field.substring(0, colon);
+                String value = field.substring(colon + 1);
+                switch (key) {
+                    case "S":
+                        ssid = value;
+                        break;
+                    case "P":
+                        password = value;
+                        break;
+                    case "T":
+                        security = value;
+                        break;
+                    case "H":
+                        hidden = "true".equalsIgnoreCase(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            field.setLength(0);
+        }
+        return ssid == null || ssid.isEmpty() ? null : new WifiQrPayload(ssid, password, security, hidden);
+    }
+
+    // Keys are single letters (S, P, T, H); escapes are already resolved into the field.
+    private static int keySeparator(StringBuilder field) {
+        return field.length() > 1 && field.charAt(1) == ':' ? 1 : -1;
+    }
+}
@@ -0,0 +1,78 @@
+package com.navia.navia;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.content.pm.PackageInfoCompat;
+
+/**
+ * Remembers how the connected Wi-Fi row was found on this device: the resource view ID of
+ * the node that matched and how many levels up its clickable row was. Later sessions look
+ * that ID up directly instead of walking the whole tree.
+ *
+ * Entries are keyed to the Settings app version and the build fingerprint, so a Settings
+ * update or OTA drops the cache and the service learns again from a full scan.
+ */
+public final class WifiRowResolverCache {
+    private static final String TAG = "A11y";
+    private static final String PREFS = "a11y_wifi_resolver";
+    private static final String KEY_VERSION = "settings_version";
+    private static final String KEY_VIEW_ID = "view_id";
+    private static final String KEY_DISTANCE = "ancestor_distance";
+    private static final String SETTINGS_PACKAGE = "com.android.settings";
+
+    private final SharedPreferences prefs;
+    private final String versionKey;
+    private String viewId;
+    private int ancestorDistance;
+
+    public WifiRowResolverCache(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        versionKey = settingsVersion(context) + "|" + Build.FINGERPRINT;
+        if (!versionKey.equals(prefs.getString(KEY_VERSION, null))) {
+            Log.d(TAG, "Wi-Fi resolver cache invalidated for " + versionKey);
+            prefs.edit().clear().putString(KEY_VERSION, versionKey).apply();
+        }
+        viewId = prefs.getString(KEY_VIEW_ID, null);
+        ancestorDistance = prefs.getInt(KEY_DISTANCE, -1);
+    }
+
+    public synchronized String getViewId() {
+        return ancestorDistance >= 0 ? viewId : null;
+    }
+
+    public synchronized int getAncestorDistance() {
+        return ancestorDistance;
+    }
+
+    public synchronized void record(String learnedViewId, int distance) {
+        if (learnedViewId == null || distance < 0) return;
+        if (learnedViewId.equals(viewId) && distance == ancestorDistance) return;
+        viewId = learnedViewId;
+        ancestorDistance = distance;
+        prefs.edit()
+                .putString(KEY_VIEW_ID, learnedViewId)
+                .putInt(KEY_DISTANCE, distance)
+                .apply();
+        Log.d(TAG, "Learned Wi-Fi row resolver: " + learnedViewId + " (+" + distance + ")");
+    }
+
+    public synchronized void invalidate() {
+        viewId = null;
+        ancestorDistance = -1;
+        prefs.edit().remove(KEY_VIEW_ID).remove(KEY_DISTANCE).apply();
+    }
+
+    private static String settingsVersion(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(SETTINGS_PACKAGE, 0);
+            return String.valueOf(PackageInfoCompat.getLongVersionCode(info));
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.navia.navia;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes YUV_420_888 camera planes to JPEG for the guidance stream.
+ *
+ * Rotation and integer downscale happen in a single pass while the planes are packed into
+ * NV21, and the NV21 buffer and JPEG output stream are reused across frames, so a steady
+ * stream allocates nothing but the returned byte array. Not thread-safe: one instance per
+ * encoding thread.
+ */
+public final class YuvJpegEncoder {
+    private byte[] nv21;
+    private final ByteArrayOutputStream jpegOut = new ByteArrayOutputStream(64 * 1024);
+    private int outputWidth;
+    private int outputHeight;
+
+    /**
+     * @param rotation clockwise rotation in degrees (0, 90, 180 or 270)
+     * @param maxWidth downscale by an integer factor until the unrotated width fits, 0 for none
+     */
+    public byte[] encode(int width, int height,
+                         byte[] y, int yRowStride,
+                         byte[] u, int uRowStride, int uPixelStride,
+                         byte[] v, int vRowStride, int vPixelStride,
+                         int quality, int rotation, int maxWidth) {
+        int scale = maxWidth > 0 ? Math.max(1, (width + maxWidth - 1) / maxWidth) : 1;
+        int scaledWidth = (width / scale) & ~1;
+        int scaledHeight = (height / scale) & ~1;
+        boolean swap = rotation == 90 || rotation == 270;
+        outputWidth = swap ? scaledHeight : scaledWidth;
+        outputHeight = swap ? scaledWidth : scaledHeight;
+
+        int size = outputWidth * outputHeight * 3 / 2;
+        if (nv21 == null || nv21.length != size) {
+            nv21 = new byte[size];
+        }
+
+        // لوحة السطوع بدقة كاملة، ثم الألوان (V ثم U) بنصف الدقة.
+        copyRotated(y, yRowStride, 1, scaledWidth, scaledHeight, scale, rotation,
+                nv21, 0, outputWidth, 1);
+        copyRotated(v, vRowStride, vPixelStride, scaledWidth / 2, scaledHeight / 2, scale, rotation,
+                nv21, outputWidth * outputHeight, outputWidth, 2);
+        copyRotated(u, uRowStride, uPixelStride, scaledWidth / 2, scaledHeight / 2, scale, rotation,
+                nv21, outputWidth * outputHeight + 1, outputWidth, 2);
+
+        jpegOut.reset();
+        new YuvImage(nv21, ImageFormat.NV21, outputWidth, outputHeight, null)
+                .compressToJpeg(new Rect(0, 0, outputWidth, outputHeight), quality, jpegOut);
+        return jpegOut.toByteArray();
+    }
+
+    public int getOutputWidth() {
+        return outputWidth;
+    }
+
+    public int getOutputHeight() {
+        return outputHeight;
+    }
+
+    /**
+     * Copies a {@code w x h} plane (in scaled coordinates) into {@code dst}, rotated clockwise.
+     * The source index is linear in the output coordinates, so each output row is a single
+     * strided walk through the source.
+     */
+    private static void copyRotated(byte[] src, int rowStride, int pixelStride,
+                                    int w, int h, int scale, int rotation,
+                                    byte[] dst, int dstOffset, int dstRowStride, int dstPixelStride) {
+        int stepRow = scale * rowStride;
+        int stepCol = scale * pixelStride;
+        int outW;
+        int outH;
+        int origin;
+        int perOutCol;
+        int perOutRow;
+        switch (rotation) {
+            case 90:
+                // out(x, y) = src(col = y, row = h - 1 - x)
+                outW = h;
+                outH = w;
+                origin = (h - 1) * stepRow;
+                perOutCol = -stepRow;
+                perOutRow = stepCol;
+                break;
+            case 180:
+                outW = w;
+                outH = h;
+                origin = (h - 1) * stepRow + (w - 1) * stepCol;
+                perOutCol = -stepCol;
+                perOutRow = -stepRow;
+                break;
+            case 270:
+                // out(x, y) = src(col = w - 1 - y, row = x)
+                outW = h;
+                outH = w;
+                origin = (w - 1) * stepCol;
+                perOutCol = stepRow;
+                perOutRow = -stepCol;
+                break;
+            default:
+                outW = w;
+                outH = h;
+                origin = 0;
+                perOutCol = stepCol;
+                perOutRow = stepRow;
+                break;
+        }
+        for (int oy = 0; oy < outH; oy++) {
+            int s = origin + oy * perOutRow;
+            int d = dstOffset + oy * dstRowStride;
+            for (int ox = 0; ox < outW; ox++) {
+                dst[d] = src[s];
+                s += perOutCol;
+                d += dstPixelStride;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// Plain Java library: the audio, scoring and tree-matching hot paths, with no Android
+// dependencies so they can be benchmarked on any JVM.
+//   ./gradlew :core:jmh
+plugins {
+    `java-library`
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+// Unit tests for the same hot paths: ./gradlew :core:test
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    // The gc profiler adds gc.alloc.rate.norm (bytes per operation) next to the timings.
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
+
+// Offline replay of a WAV corpus through the wake + verify pipeline:
+//   ./gradlew :core:replay --args="--corpus path/to/corpus"
+// Add -Ppicovoice to build the real Porcupine/Eagle engines (needs an access key to run).
+val replay by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+if (project.hasProperty("picovoice")) {
+    replay.java.srcDir("src/picovoice/java")
+    dependencies {
+        "replayImplementation"("ai.picovoice:porcupine-java:3.0.0")
+        "replayImplementation"("ai.picovoice:eagle-java:1.0.0")
+    }
+}
+
+tasks.register<JavaExec>("replay") {
+    group = "verification"
+    description = "Replays a WAV corpus and reports wake-to-decision latency, CPU and confusion."
+    classpath = replay.runtimeClasspath
+    mainClass.set("com.navia.navia.ReplayHarness")
+    workingDir = rootProject.projectDir
+}
@@ -0,0 +1,79 @@
+package com.navia.navia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capture-thread cost per 512-sample frame: the ring buffer write done for every frame in
+ * PorcupainService, the snapshot taken on each wake, and enrollment chunk assembly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AudioPathBenchmark {
+    static final int FRAME_LENGTH = 512;
+    static final int SAMPLE_RATE = 16000;
+    // نفس إعدادات الخدمة: أربع ثوانٍ من الصوت.
+    static final int RING_FRAMES = SAMPLE_RATE * 4 / FRAME_LENGTH;
+    private static final int READS_PER_CHUNK = 64;
+    private static final int READ_SIZE = 256;
+
+    private AudioRingBuffer ring;
+    private short[] frame;
+    private short[] snapshot;
+    private EnrollmentChunker chunker;
+    private short[] read;
+
+    @Setup
+    public void setUp() {
+        ring = new AudioRingBuffer(FRAME_LENGTH, RING_FRAMES);
+        frame = syntheticPcm(FRAME_LENGTH, 1);
+        snapshot = new short[ring.getCapacitySamples()];
+        for (int i = 0; i < RING_FRAMES; i++) {
+            ring.write(frame);
+        }
+        chunker = new EnrollmentChunker(READS_PER_CHUNK * READ_SIZE);
+        read = syntheticPcm(READ_SIZE, 2);
+    }
+
+    @Benchmark
+    public long ringWrite() {
+        ring.write(frame);
+        return ring.getWriteSequence();
+    }
+
+    @Benchmark
+    public int ringSnapshot() {
+        return ring.snapshot(snapshot);
+    }
+
+    /** One full enrollment chunk assembled from recorder-sized reads; reported per read. */
+    @Benchmark
+    @OperationsPerInvocation(READS_PER_CHUNK)
+    public boolean enrollChunk() {
+        boolean full = false;
+        for (int i = 0; i < READS_PER_CHUNK; i++) {
+            System.arraycopy(read, 0, chunker.getBuffer(), chunker.getFill(), READ_SIZE);
+            full = chunker.commit(READ_SIZE);
+        }
+        return full;
+    }
+
+    static short[] syntheticPcm(int length, long seed) {
+        Random random = new Random(seed);
+        short[] pcm = new short[length];
+        for (int i = 0; i < length; i++) {
+            pcm[i] = (short) (random.nextGaussian() * 3000);
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,116 @@
+package com.navia.navia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the connected-row tree walk over a synthetic Wi-Fi settings tree: a toolbar,
+ * a list of {@code networks} rows (title, summary, icon) and the connected network either
+ * first, last or missing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConnectedRowScannerBenchmark {
+    @Param({"10", "60"})
+    public int networks;
+
+    @Param({"first", "last", "none"})
+    public String connected;
+
+    private ConnectedRowScanner<Node> scanner;
+    private Node root;
+
+    @Setup
+    public void setUp() {
+        scanner = new ConnectedRowScanner<>(new NodeAdapterImpl(), new ConnectedRowMatcher(), 600, 30, 10);
+        Node list = new Node(null, null, "android:id/list", false);
+        list.children = new Node[networks];
+        for (int i = 0; i < networks; i++) {
+            boolean isConnected = ("first".equals(connected) && i == 0)
+                    || ("last".equals(connected) && i == networks - 1);
+            Node row = new Node(null, null, null, true);
+            row.children = new Node[]{
+                    new Node(null, null, "android:id/icon", false),
+                    new Node("Network " + i, null, "android:id/title", false),
+                    new Node(isConnected ? "Connected" : "Saved", null, "android:id/summary", false),
+            };
+            list.children[i] = row;
+        }
+        Node toolbar = new Node(null, "Navigate up", "com.android.settings:id/action_bar", false);
+        Node header = new Node("Wi-Fi", null, "android:id/title", false);
+        root = new Node(null, null, null, false);
+        root.children = new Node[]{toolbar, new Node(null, null, null, false, header, list)};
+    }
+
+    @Benchmark
+    public Node scan() {
+        return scanner.scan(root);
+    }
+
+    static final class Node {
+        final CharSequence text;
+        final CharSequence description;
+        final String viewId;
+        final boolean clickable;
+        Node[] children;
+
+        Node(CharSequence text, CharSequence description, String viewId, boolean clickable, Node... children) {
+            this.text = text;
+            this.description = description;
+            this.viewId = viewId;
+            this.clickable = clickable;
+            this.children = children;
+        }
+    }
+
+    /** Plain object tree: nothing to obtain or recycle. */
+    static final class NodeAdapterImpl implements ConnectedRowScanner.NodeAdapter<Node> {
+        @Override
+        public CharSequence getText(Node node) {
+            return node.text;
+        }
+
+        @Override
+        public CharSequence getContentDescription(Node node) {
+            return node.description;
+        }
+
+        @Override
+        public String getViewId(Node node) {
+            return node.viewId;
+        }
+
+        @Override
+        public int getChildCount(Node node) {
+            return node.children.length;
+        }
+
+        @Override
+        public Node getChild(Node node, int index) {
+            return node.children[index];
+        }
+
+        @Override
+        public boolean isClickable(Node node) {
+            return node.clickable;
+        }
+
+        @Override
+        public Node retain(Node node) {
+            return node;
+        }
+
+        @Override
+        public void release(Node node) {
+        }
+    }
+}
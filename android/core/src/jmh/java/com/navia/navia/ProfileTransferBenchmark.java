@@ -0,0 +1,69 @@
+package com.navia.navia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receiving a voice profile from Dart: the legacy List<Integer> argument against the
+ * binary channel's direct ByteBuffer. Compare gc.alloc.rate.norm between the two.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProfileTransferBenchmark {
+    // Eagle profiles are a few kilobytes.
+    @Param({"2048", "8192"})
+    public int profileSize;
+
+    private byte[] wire;
+    private ByteBuffer direct;
+    private List<Integer> boxed;
+
+    @Setup
+    public void setUp() {
+        wire = new byte[profileSize];
+        new Random(7).nextBytes(wire);
+        direct = ByteBuffer.allocateDirect(profileSize);
+        direct.put(wire);
+        direct.flip();
+        boxed = decodeAsList(wire);
+    }
+
+    /** What StandardMessageCodec hands the method channel for a Dart List<int>, then unboxed. */
+    @Benchmark
+    public byte[] boxedListDecodeAndUnbox() {
+        return ProfileBytes.from(decodeAsList(wire));
+    }
+
+    /** Only the per-element unboxing done in saveVoiceProfile, with the list already built. */
+    @Benchmark
+    public byte[] boxedListUnbox() {
+        return ProfileBytes.from(boxed);
+    }
+
+    /** Binary channel: one copy out of the direct buffer Flutter delivers. */
+    @Benchmark
+    public byte[] directByteBuffer() {
+        return ProfileBytes.from(direct);
+    }
+
+    private static List<Integer> decodeAsList(byte[] bytes) {
+        List<Integer> list = new ArrayList<>(bytes.length);
+        for (byte b : bytes) {
+            list.add(b & 0xFF);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,105 @@
+package com.navia.navia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The verification side of a wake without Eagle: a stub scorer replays fixed per-frame
+ * scores, so the numbers cover only the snapshot, frame loop and scoring policy. Run with
+ * the gc profiler (the default in build.gradle.kts) to read allocations per wake.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VerificationBenchmark {
+    private static final int FRAMES = AudioPathBenchmark.RING_FRAMES;
+
+    @Param({VoiceScoringPolicy.MAX, VoiceScoringPolicy.TOP_K_MEAN, VoiceScoringPolicy.SEQUENTIAL})
+    public String policyName;
+
+    // درجة المتحدث في الإطارات التي تحمل الكلمة؛ 0.3 رفض و0.8 قبول مع السياسات الافتراضية.
+    @Param({"0.3", "0.8"})
+    public float speakerScore;
+
+    private AudioRingBuffer ring;
+    private short[] snapshot;
+    private FrameVerifier verifier;
+    private VoiceScoringPolicy policy;
+    private VoiceScoringPolicy neverDecides;
+    private ReplayScorer scorer;
+
+    @Setup
+    public void setUp() {
+        ring = new AudioRingBuffer(AudioPathBenchmark.FRAME_LENGTH, FRAMES);
+        short[] frame = AudioPathBenchmark.syntheticPcm(AudioPathBenchmark.FRAME_LENGTH, 3);
+        for (int i = 0; i < FRAMES; i++) {
+            ring.write(frame);
+        }
+        snapshot = new short[ring.getCapacitySamples()];
+        verifier = new FrameVerifier(AudioPathBenchmark.FRAME_LENGTH);
+        policy = VoiceScoringPolicy.create(policyName, 0.6f);
+        // Threshold above any score and no early reject, so every frame is scored.
+        neverDecides = new VoiceScoringPolicy.Max(2f, Float.NEGATIVE_INFINITY, 0);
+
+        // Silence first, then the keyword in the last second of the snapshot.
+        float[] scores = new float[FRAMES];
+        Random random = new Random(4);
+        int keywordStart = FRAMES - AudioPathBenchmark.SAMPLE_RATE / AudioPathBenchmark.FRAME_LENGTH;
+        for (int i = 0; i < FRAMES; i++) {
+            float base = i >= keywordStart ? speakerScore : 0.05f;
+            scores[i] = Math.max(0f, base + (float) random.nextGaussian() * 0.05f);
+        }
+        scorer = new ReplayScorer(scores);
+    }
+
+    /** Snapshot plus policy loop, as run once per keyword detection. */
+    @Benchmark
+    public boolean wake() {
+        int samples = ring.snapshot(snapshot);
+        scorer.rewind();
+        return verifier.verify(snapshot, samples, scorer, policy);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public boolean perFrame() {
+        scorer.rewind();
+        return verifier.verify(snapshot, snapshot.length, scorer, neverDecides);
+    }
+
+    /** Replays a fixed score sequence; the frame content is ignored. */
+    static final class ReplayScorer implements FrameScorer<RuntimeException> {
+        private final float[] scores;
+        private int next = 0;
+
+        ReplayScorer(float[] scores) {
+            this.scores = scores;
+        }
+
+        void rewind() {
+            next = 0;
+        }
+
+        @Override
+        public int getFrameLength() {
+            return AudioPathBenchmark.FRAME_LENGTH;
+        }
+
+        @Override
+        public float score(short[] frame) {
+            float score = scores[next];
+            next = (next + 1) % scores.length;
+            return score;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.navia.navia;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Single-producer ring buffer of fixed-size PCM frames.
+ *
+ * The capture thread is the only writer: {@link #write(short[])} copies one frame into a
+ * pre-allocated slot and then publishes it by bumping a volatile sequence counter, so the
+ * hot path takes no lock and allocates nothing. Readers call {@link #snapshot(short[])} to
+ * copy the most recent frames, oldest to newest, into an array they own; if the writer
+ * laps the reader during the copy the snapshot is retried.
+ */
+public final class AudioRingBuffer {
+    // Extra slots beyond the exported window so the writer can fill the next frame while a
+    // reader is still copying the oldest one.
+    private static final int GUARD_FRAMES = 2;
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 4;
+    // VarHandle fences exist on the JVM and on Android API 33+ only.
+    private static final boolean HAS_VAR_HANDLE_FENCES = hasVarHandleFences();
+
+    private final int frameLength;
+    private final int capacityFrames;
+    private final int slotCount;
+    private final short[] samples;
+
+    // Number of frames published so far. Written only by the producer.
+    private volatile long writeSequence = 0;
+    // Fallback fence for runtimes without VarHandle: a volatile store is a release, so the
+    // plain sample loads before it cannot be reordered after the following sequence read.
+    private volatile int readFence;
+
+    public AudioRingBuffer(int frameLength, int capacityFrames) {
+        if (frameLength <= 0 || capacityFrames <= 0) {
+            throw new IllegalArgumentException("frameLength and capacityFrames must be positive");
+        }
+        this.frameLength = frameLength;
+        this.capacityFrames = capacityFrames;
+        this.slotCount = capacityFrames + GUARD_FRAMES;
+        this.samples = new short[slotCount * frameLength];
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    public int getCapacityFrames() {
+        return capacityFrames;
+    }
+
+    /** Size a caller-owned array must have to receive a full snapshot. */
+    public int getCapacitySamples() {
+        return capacityFrames * frameLength;
+    }
+
+    public long getWriteSequence() {
+        return writeSequence;
+    }
+
+    /** Producer only. Copies exactly {@code frameLength} samples from {@code frame}. */
+    public void write(short[] frame) {
+        long seq = writeSequence;
+        int slot = (int) (seq % slotCount);
+        System.arraycopy(frame, 0, samples, slot * frameLength, frameLength);
+        writeSequence = seq + 1;
+    }
+
+    /**
+     * Copies up to {@link #getCapacityFrames()} most recent frames into {@code dest}, oldest
+     * first, starting at index 0.
+     *
+     * @return the number of samples copied (a multiple of the frame length), or 0 if no
+     *         consistent snapshot could be taken.
+     */
+    public int snapshot(short[] dest) {
+        if (dest.length < getCapacitySamples()) {
+            throw new IllegalArgumentException("dest must hold at least " + getCapacitySamples() + " samples");
+        }
+        for (int attempt = 0; attempt < MAX_SNAPSHOT_ATTEMPTS; attempt++) {
+            long end = writeSequence;
+            int frames = (int) Math.min(end, capacityFrames);
+            long start = end - frames;
+
+            int startSlot = (int) (start % slotCount);
+            int firstRun = Math.min(frames, slotCount - startSlot);
+            System.arraycopy(samples, startSlot * frameLength, dest, 0, firstRun * frameLength);
+            if (firstRun < frames) {
+                System.arraycopy(samples, 0, dest, firstRun * frameLength, (frames - firstRun) * frameLength);
+            }
+
+            // The writer may be filling frame `after`, which reuses the slot of frame
+            // `after - slotCount`. The copy is intact if that is older than `start`. The
+            // sample loads above are plain, so fence them before re-reading the sequence.
+            acquireFence();
+            long after = writeSequence;
+            if (after - start < slotCount) {
+                return frames * frameLength;
+            }
+        }
+        return 0;
+    }
+
+    private void acquireFence() {
+        if (HAS_VAR_HANDLE_FENCES) {
+            VarHandle.acquireFence();
+        } else {
+            readFence = 0;
+        }
+    }
+
+    private static boolean hasVarHandleFences() {
+        try {
+            Class.forName("java.lang.invoke.VarHandle").getMethod("acquireFence");
+            return true;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /** Forgets all frames. Must not race with {@link #write(short[])}. */
+    public void clear() {
+        writeSequence = 0;
+    }
+}
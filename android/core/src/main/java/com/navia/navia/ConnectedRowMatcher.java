@@ -0,0 +1,41 @@
+package com.navia.navia;
+
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether an accessibility node is the "connected" Wi-Fi row in Settings, from
+ * its text, content description and view ID in one check. The patterns are compiled
+ * once, so a tree scan only pays one regex test per populated field.
+ */
+public final class ConnectedRowMatcher {
+    // "Connected" / "Connected, secured" and the Arabic "متصل" / "متصل، محمي".
+    private static final Pattern CONNECTED = Pattern.compile("متصل|Connected");
+    // Arabic header: "connected to the wireless network"
+    private static final Pattern SECTION_HEADER = Pattern.compile("بالشبكة اللاسلكية");
+
+    private final Pattern viewIdPattern;
+
+    public ConnectedRowMatcher() {
+        this(null);
+    }
+
+    /** @param viewIdPattern optional pattern on the resource view ID, e.g. a learned ID. */
+    public ConnectedRowMatcher(Pattern viewIdPattern) {
+        this.viewIdPattern = viewIdPattern;
+    }
+
+    public boolean matches(CharSequence text, CharSequence contentDescription, CharSequence viewId) {
+        if (text != null && text.length() > 0) {
+            if (CONNECTED.matcher(text).find()) {
+                // Skip section headers
+                return !SECTION_HEADER.matcher(text).find();
+            }
+        }
+        if (contentDescription != null && contentDescription.length() > 0
+                && CONNECTED.matcher(contentDescription).find()
+                && !SECTION_HEADER.matcher(contentDescription).find()) {
+            return true;
+        }
+        return viewIdPattern != null && viewId != null && viewIdPattern.matcher(viewId).matches();
+    }
+}
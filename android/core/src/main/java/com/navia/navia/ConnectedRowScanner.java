@@ -0,0 +1,149 @@
+package com.navia.navia;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * The Settings tree walk that finds the clickable "connected" Wi-Fi row, written against a
+ * small {@link NodeAdapter} so the same rules run on AccessibilityNodeInfo on the device
+ * and on plain objects in benchmarks.
+ *
+ * One bounded depth-first pass: each node is checked by {@link ConnectedRowMatcher}, and the
+ * root-to-node path is kept so the clickable ancestor is found without extra parent
+ * lookups. Every node obtained during the walk is released except the root and the one
+ * returned, which the caller owns. Not thread-safe: one instance per scan thread.
+ */
+public final class ConnectedRowScanner<N> {
+
+    /** Access to a node tree. {@link #getChild} hands out a node the scanner must release. */
+    public interface NodeAdapter<N> {
+        CharSequence getText(N node);
+
+        CharSequence getContentDescription(N node);
+
+        String getViewId(N node);
+
+        int getChildCount(N node);
+
+        /** May return null for children that disappeared while scanning. */
+        N getChild(N node, int index);
+
+        boolean isClickable(N node);
+
+        /** A reference to {@code node} that survives {@link #release} of the original. */
+        N retain(N node);
+
+        void release(N node);
+    }
+
+    private final NodeAdapter<N> adapter;
+    private final ConnectedRowMatcher matcher;
+    private final int maxNodes;
+    private final int maxDepth;
+    private final int maxAncestorDistance;
+
+    // تعاد للاستخدام بين عمليات الفحص لتفادي التخصيص في كل حدث.
+    private final ArrayDeque<N> stack = new ArrayDeque<>();
+    private final ArrayDeque<Integer> depths = new ArrayDeque<>();
+    private final ArrayList<N> path = new ArrayList<>();
+
+    private String lastMatchViewId;
+    private int lastMatchDistance = -1;
+    private int lastVisited = 0;
+
+    public ConnectedRowScanner(NodeAdapter<N> adapter, ConnectedRowMatcher matcher,
+                               int maxNodes, int maxDepth, int maxAncestorDistance) {
+        this.adapter = adapter;
+        this.matcher = matcher;
+        this.maxNodes = maxNodes;
+        this.maxDepth = maxDepth;
+        this.maxAncestorDistance = maxAncestorDistance;
+    }
+
+    /** Returns the clickable row for the connected network, or null. */
+    public N scan(N root) {
+        lastMatchViewId = null;
+        lastMatchDistance = -1;
+        lastVisited = 0;
+        stack.push(root);
+        depths.push(0);
+        try {
+            while (!stack.isEmpty() && lastVisited < maxNodes) {
+                N node = stack.pop();
+                int depth = depths.pop();
+                while (path.size() > depth) {
+                    releaseUnlessRoot(path.remove(path.size() - 1), root);
+                }
+                path.add(node);
+                lastVisited++;
+
+                if (matcher.matches(adapter.getText(node), adapter.getContentDescription(node), adapter.getViewId(node))) {
+                    N clickable = findClickableOnPath();
+                    if (clickable != null) {
+                        return clickable;
+                    }
+                }
+
+                if (depth < maxDepth) {
+                    // Push in reverse so children are visited in screen order.
+                    for (int i = adapter.getChildCount(node) - 1; i >= 0; i--) {
+                        N child = adapter.getChild(node, i);
+                        if (child != null) {
+                            stack.push(child);
+                            depths.push(depth + 1);
+                        }
+                    }
+                }
+            }
+            return null;
+        } finally {
+            for (N n : path) releaseUnlessRoot(n, root);
+            for (N n : stack) releaseUnlessRoot(n, root);
+            path.clear();
+            stack.clear();
+            depths.clear();
+        }
+    }
+
+    /** View ID of the matched node when the last scan climbed to an ancestor, else null. */
+    public String getLastMatchViewId() {
+        return lastMatchViewId;
+    }
+
+    /** Ancestor distance that went with {@link #getLastMatchViewId()}, or -1. */
+    public int getLastMatchDistance() {
+        return lastMatchDistance;
+    }
+
+    public int getLastVisited() {
+        return lastVisited;
+    }
+
+    // أقرب عنصر قابل للنقر: العقدة نفسها أو أحد آبائها على المسار، ثم أحد الأشقاء.
+    private N findClickableOnPath() {
+        int last = path.size() - 1;
+        for (int i = last; i >= 0 && last - i <= maxAncestorDistance; i--) {
+            N candidate = path.get(i);
+            if (adapter.isClickable(candidate)) {
+                lastMatchViewId = adapter.getViewId(path.get(last));
+                lastMatchDistance = last - i;
+                return adapter.retain(candidate);
+            }
+        }
+        if (last < 1) return null;
+        N parent = path.get(last - 1);
+        for (int i = 0; i < adapter.getChildCount(parent); i++) {
+            N sibling = adapter.getChild(parent, i);
+            if (sibling == null) continue;
+            if (adapter.isClickable(sibling)) {
+                return sibling;
+            }
+            adapter.release(sibling);
+        }
+        return null;
+    }
+
+    private void releaseUnlessRoot(N node, N root) {
+        if (node != root) adapter.release(node);
+    }
+}
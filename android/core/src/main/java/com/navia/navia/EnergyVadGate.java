@@ -0,0 +1,147 @@
+package com.navia.navia;
+
+/**
+ * Cheap energy gate in front of the keyword engine.
+ *
+ * Each frame's RMS is compared against an adaptive noise floor: the floor follows quieter
+ * frames quickly and louder ones slowly, so a fan or traffic noise is absorbed in a few
+ * seconds while a spoken word stands out. Speech opens the gate and every speech frame
+ * restarts a hangover, so the end of the keyword is never cut. The last
+ * {@code preRollFrames} gated frames are kept, and when the gate opens they are handed out
+ * before the current frame, so the keyword engine sees the onset it would have missed.
+ *
+ * Usage per frame: {@code n = offer(frame)}, then feed {@code frameAt(0..n-1)} in order.
+ * Allocation-free after construction. Not thread-safe: capture thread only.
+ */
+public final class EnergyVadGate {
+    // الأرضية تنخفض بسرعة مع الهدوء وترتفع ببطء مع الضجيج المستمر (~6 ثوانٍ عند 31 إطاراً/ثانية).
+    private static final double FLOOR_FALL = 0.2;
+    private static final double FLOOR_RISE = 0.005;
+    private static final double MIN_FLOOR_RMS = 10;
+
+    private final int frameLength;
+    private final int hangoverFrames;
+    private final double speechRatio;
+    private final double minSpeechRms;
+
+    // Pre-roll ring: slot `head` holds the newest frame, i.e. the current one.
+    private final short[][] ring;
+    private int head = -1;
+    // Frames gated since the engine last saw one; only these are replayed.
+    private int gatedRun = 0;
+
+    private double noiseFloor = -1;
+    private int hangover = 0;
+    private int pendingFrames = 0;
+
+    private long framesPassed = 0;
+    private long framesGated = 0;
+
+    /**
+     * @param preRollFrames gated frames replayed when the gate opens
+     * @param hangoverFrames frames the gate stays open after the last speech frame
+     * @param speechRatio how far above the noise floor a frame's RMS must be to count as speech
+     * @param minSpeechRms absolute RMS below which nothing counts as speech
+     */
+    public EnergyVadGate(int frameLength, int preRollFrames, int hangoverFrames,
+                         double speechRatio, double minSpeechRms) {
+        if (frameLength <= 0 || preRollFrames < 0 || hangoverFrames < 0) {
+            throw new IllegalArgumentException("frameLength must be positive, preRoll and hangover non-negative");
+        }
+        this.frameLength = frameLength;
+        this.hangoverFrames = hangoverFrames;
+        this.speechRatio = speechRatio;
+        this.minSpeechRms = minSpeechRms;
+        ring = new short[preRollFrames + 1][frameLength];
+    }
+
+    /** Defaults for 512-sample frames at 16 kHz: 320 ms pre-roll, 640 ms hangover, +6 dB. */
+    public static EnergyVadGate forWakeWord(int frameLength) {
+        return new EnergyVadGate(frameLength, 10, 20, 2.0, 100);
+    }
+
+    /**
+     * Copies {@code frame} in and returns how many frames to feed the keyword engine now:
+     * 0 while the gate is closed, 1 while it stays open, more when it has just opened.
+     */
+    public int offer(short[] frame) {
+        head = (head + 1) % ring.length;
+        System.arraycopy(frame, 0, ring[head], 0, frameLength);
+
+        double rms = rms(frame);
+        if (noiseFloor < 0) {
+            noiseFloor = Math.max(MIN_FLOOR_RMS, rms);
+        } else {
+            noiseFloor += (rms < noiseFloor ? FLOOR_FALL : FLOOR_RISE) * (rms - noiseFloor);
+            if (noiseFloor < MIN_FLOOR_RMS) noiseFloor = MIN_FLOOR_RMS;
+        }
+
+        boolean wasOpen = hangover > 0;
+        if (rms >= minSpeechRms && rms >= noiseFloor * speechRatio) {
+            hangover = hangoverFrames + 1;
+        } else if (hangover > 0) {
+            hangover--;
+        }
+
+        if (hangover == 0) {
+            pendingFrames = 0;
+            gatedRun++;
+            framesGated++;
+            return 0;
+        }
+        // Gated frames replayed as pre-roll are counted as passed: the engine runs on them.
+        int replayed = wasOpen ? 0 : Math.min(gatedRun, ring.length - 1);
+        framesGated -= replayed;
+        gatedRun = 0;
+        pendingFrames = replayed + 1;
+        framesPassed += pendingFrames;
+        return pendingFrames;
+    }
+
+    /** Frame {@code index} of the last {@link #offer}, oldest first; valid until the next offer. */
+    public short[] frameAt(int index) {
+        if (index < 0 || index >= pendingFrames) {
+            throw new IndexOutOfBoundsException("frame " + index + " of " + pendingFrames);
+        }
+        int slot = (head - (pendingFrames - 1 - index) + ring.length) % ring.length;
+        return ring[slot];
+    }
+
+    public boolean isOpen() {
+        return hangover > 0;
+    }
+
+    public double getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    public long getFramesPassed() {
+        return framesPassed;
+    }
+
+    public long getFramesGated() {
+        return framesGated;
+    }
+
+    /** Share of frames the keyword engine never saw, 0..1. */
+    public double getGatedRatio() {
+        long total = framesPassed + framesGated;
+        return total == 0 ? 0 : (double) framesGated / total;
+    }
+
+    /** Forgets the pre-roll and open state after a capture gap; the noise floor is kept. */
+    public void reset() {
+        head = -1;
+        gatedRun = 0;
+        hangover = 0;
+        pendingFrames = 0;
+    }
+
+    private static double rms(short[] frame) {
+        long sum = 0;
+        for (short s : frame) {
+            sum += s * s;
+        }
+        return Math.sqrt((double) sum / frame.length);
+    }
+}
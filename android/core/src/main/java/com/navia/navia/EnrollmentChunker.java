@@ -0,0 +1,61 @@
+package com.navia.navia;
+
+/**
+ * Assembles short audio reads into fixed-size enrollment chunks in one reused array.
+ *
+ * The recorder reads straight into {@link #getBuffer()} at {@link #getFill()}, up to
+ * {@link #getRemaining()} samples, then reports the count through {@link #commit(int)}.
+ * When a chunk is complete it is handed to the profiler and the next read starts over at
+ * index 0, so enrollment memory stays constant however long it runs.
+ */
+public final class EnrollmentChunker {
+    private final short[] chunk;
+    private int fill = 0;
+    private long totalSamples = 0;
+
+    public EnrollmentChunker(int chunkSamples) {
+        if (chunkSamples <= 0) {
+            throw new IllegalArgumentException("chunkSamples must be positive");
+        }
+        chunk = new short[chunkSamples];
+    }
+
+    public short[] getBuffer() {
+        return chunk;
+    }
+
+    public int getFill() {
+        return fill;
+    }
+
+    public int getRemaining() {
+        return chunk.length - fill;
+    }
+
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * Records {@code count} samples written at {@link #getFill()}.
+     *
+     * @return true if the chunk is now full; its contents stay valid until the next read
+     */
+    public boolean commit(int count) {
+        if (count < 0 || count > getRemaining()) {
+            throw new IllegalArgumentException("count " + count + " outside 0.." + getRemaining());
+        }
+        fill += count;
+        totalSamples += count;
+        if (fill < chunk.length) {
+            return false;
+        }
+        fill = 0;
+        return true;
+    }
+
+    public void reset() {
+        fill = 0;
+        totalSamples = 0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.navia.navia;
+
+/**
+ * Scores one fixed-length PCM frame for the enrolled speakers. On the device this wraps
+ * Eagle.process(); on a plain JVM it can be a stub, so the frame loop around it can be
+ * measured without Picovoice.
+ *
+ * @param <E> the checked exception the underlying engine throws
+ */
+public interface FrameScorer<E extends Exception> {
+    int getFrameLength();
+
+    /** Returns the best score over all enrolled speakers for {@code frame}. */
+    float score(short[] frame) throws E;
+}
@@ -0,0 +1,49 @@
+package com.navia.navia;
+
+/**
+ * The snapshot verification loop: walks a PCM buffer frame by frame through a
+ * {@link FrameScorer} and a {@link VoiceScoringPolicy}, stopping as soon as the policy
+ * decides.
+ *
+ * The scorer only accepts whole frames with no offset, so each frame is copied into one
+ * reused array instead of allocating per frame. Not thread-safe: one instance per
+ * verification thread.
+ */
+public final class FrameVerifier {
+    private final short[] frame;
+
+    public FrameVerifier(int frameLength) {
+        frame = new short[frameLength];
+    }
+
+    /**
+     * Resets {@code policy} and feeds it the first {@code numSamples} samples of
+     * {@code buffer}; a trailing partial frame is ignored.
+     *
+     * @return true if the policy accepted the speaker
+     */
+    public <E extends Exception> boolean verify(short[] buffer, int numSamples,
+                                                FrameScorer<E> scorer, VoiceScoringPolicy policy) throws E {
+        int frameLength = frame.length;
+        if (scorer.getFrameLength() != frameLength) {
+            throw new IllegalArgumentException("scorer frame length " + scorer.getFrameLength() + " != " + frameLength);
+        }
+        int numFrames = Math.min(numSamples, buffer.length) / frameLength;
+        policy.reset(numFrames);
+        int decision = VoiceScoringPolicy.UNDECIDED;
+        for (int i = 0; i < numFrames && decision == VoiceScoringPolicy.UNDECIDED; i++) {
+            System.arraycopy(buffer, i * frameLength, frame, 0, frameLength);
+            decision = policy.onScore(scorer.score(frame));
+        }
+        return decision == VoiceScoringPolicy.UNDECIDED ? policy.decide() : decision == VoiceScoringPolicy.ACCEPT;
+    }
+
+    /** Eagle returns one score per enrolled speaker; any household member is enough. */
+    public static float bestScore(float[] scores) {
+        float best = 0f;
+        for (float score : scores) {
+            if (score > best) best = score;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,246 @@
+package com.navia.navia;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters, gauges and fixed-bucket histograms for the always-on paths.
+ *
+ * Metrics are registered once, typically into static fields, and recording on the
+ * returned handle is a few atomic operations with no lock and no allocation, so it is safe
+ * on the capture thread and in accessibility callbacks. Reading ({@link #snapshot()},
+ * {@link #dump(PrintWriter)}) allocates and is meant for the export channel and dumpsys.
+ * Readers see each value atomically but not the registry as a whole.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    // Sorted by name so dumps are stable and related metrics sit together.
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name) {
+        return register(name, new Counter(), Counter.class);
+    }
+
+    public Gauge gauge(String name) {
+        return register(name, new Gauge(), Gauge.class);
+    }
+
+    /** @param upperBounds inclusive bucket bounds in ascending order; one overflow bucket is added */
+    public Histogram histogram(String name, long... upperBounds) {
+        return register(name, new Histogram(upperBounds), Histogram.class);
+    }
+
+    private <T extends Metric> T register(String name, T metric, Class<T> type) {
+        Metric existing = metrics.putIfAbsent(name, metric);
+        if (existing == null) return metric;
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException(name + " is already registered as " + existing.getClass().getSimpleName());
+        }
+        return type.cast(existing);
+    }
+
+    /** Name to value: a Long for counters and gauges, a Map for histograms. */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return values;
+    }
+
+    public void dump(PrintWriter writer) {
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            writer.print("  ");
+            writer.print(entry.getKey());
+            writer.print(": ");
+            writer.println(entry.getValue().describe());
+        }
+    }
+
+    /** Zeroes every metric; registrations are kept. */
+    public void reset() {
+        for (Metric metric : metrics.values()) {
+            metric.reset();
+        }
+    }
+
+    public abstract static class Metric {
+        abstract Object snapshot();
+
+        abstract String describe();
+
+        abstract void reset();
+    }
+
+    public static final class Counter extends Metric {
+        private final AtomicLong value = new AtomicLong();
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        Object snapshot() {
+            return value.get();
+        }
+
+        @Override
+        String describe() {
+            return Long.toString(value.get());
+        }
+
+        @Override
+        void reset() {
+            value.set(0);
+        }
+    }
+
+    public static final class Gauge extends Metric {
+        private final AtomicLong value = new AtomicLong();
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        Object snapshot() {
+            return value.get();
+        }
+
+        @Override
+        String describe() {
+            return Long.toString(value.get());
+        }
+
+        @Override
+        void reset() {
+            value.set(0);
+        }
+    }
+
+    /**
+     * Counts values into fixed buckets. Percentiles are estimated as the upper bound of the
+     * bucket that reaches them (the recorded max for the overflow bucket).
+     */
+    public static final class Histogram extends Metric {
+        private final long[] upperBounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        Histogram(long[] upperBounds) {
+            if (upperBounds.length == 0) {
+                throw new IllegalArgumentException("a histogram needs at least one bucket bound");
+            }
+            for (int i = 1; i < upperBounds.length; i++) {
+                if (upperBounds[i] <= upperBounds[i - 1]) {
+                    throw new IllegalArgumentException("bucket bounds must be strictly ascending");
+                }
+            }
+            this.upperBounds = upperBounds.clone();
+            buckets = new AtomicLongArray(upperBounds.length + 1);
+        }
+
+        public void record(long value) {
+            // القوائم قصيرة (أقل من 16 حداً)، فالبحث الخطي أسرع من الثنائي هنا.
+            int i = 0;
+            while (i < upperBounds.length && value > upperBounds[i]) i++;
+            buckets.incrementAndGet(i);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        /** Estimated value at {@code percentile} (0-100), or 0 if nothing was recorded. */
+        public long percentile(double percentile) {
+            long total = count.get();
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(percentile / 100.0 * total);
+            long seen = 0;
+            for (int i = 0; i < upperBounds.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return upperBounds[i];
+            }
+            return max.get();
+        }
+
+        @Override
+        Object snapshot() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            long total = count.get();
+            values.put("count", total);
+            values.put("sum", sum.get());
+            values.put("max", total == 0 ? 0L : max.get());
+            values.put("p50", percentile(50));
+            values.put("p95", percentile(95));
+            values.put("p99", percentile(99));
+            List<Long> bounds = new ArrayList<>(upperBounds.length);
+            for (long bound : upperBounds) bounds.add(bound);
+            List<Long> counts = new ArrayList<>(buckets.length());
+            for (int i = 0; i < buckets.length(); i++) counts.add(buckets.get(i));
+            values.put("bounds", bounds);
+            values.put("counts", counts);
+            return values;
+        }
+
+        @Override
+        String describe() {
+            long total = count.get();
+            StringBuilder sb = new StringBuilder();
+            sb.append("count=").append(total);
+            if (total > 0) {
+                sb.append(" mean=").append(sum.get() / total)
+                        .append(" p50=").append(percentile(50))
+                        .append(" p95=").append(percentile(95))
+                        .append(" p99=").append(percentile(99))
+                        .append(" max=").append(max.get());
+            }
+            sb.append(" [");
+            for (int i = 0; i < buckets.length(); i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(i < upperBounds.length ? "<=" + upperBounds[i] : ">" + upperBounds[upperBounds.length - 1])
+                        .append(':').append(buckets.get(i));
+            }
+            return sb.append(']').toString();
+        }
+
+        @Override
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+            count.set(0);
+            sum.set(0);
+            max.set(Long.MIN_VALUE);
+        }
+    }
+}
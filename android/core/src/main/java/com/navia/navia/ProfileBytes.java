@@ -0,0 +1,38 @@
+package com.navia.navia;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Converts a voice profile payload received from Flutter into the byte[] Eagle expects.
+ *
+ * The binary channel delivers a direct ByteBuffer and the method channel a byte[] (Dart
+ * Uint8List); both cost a single copy at most. The legacy List<Integer> form is still
+ * accepted for older callers but boxes every byte on the way in.
+ */
+public final class ProfileBytes {
+    private ProfileBytes() {}
+
+    /** Returns the profile bytes, or null if {@code payload} is not a supported type. */
+    public static byte[] from(Object payload) {
+        if (payload instanceof byte[]) {
+            return (byte[]) payload;
+        }
+        if (payload instanceof ByteBuffer) {
+            // duplicate() so the caller's position is untouched.
+            ByteBuffer buffer = ((ByteBuffer) payload).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        if (payload instanceof List) {
+            List<?> list = (List<?>) payload;
+            byte[] bytes = new byte[list.size()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = ((Number) list.get(i)).byteValue();
+            }
+            return bytes;
+        }
+        return null;
+    }
+}
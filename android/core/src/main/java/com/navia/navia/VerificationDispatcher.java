@@ -0,0 +1,108 @@
+package com.navia.navia;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs snapshot verifications on one dedicated thread so the capture/keyword thread never
+ * blocks on Eagle.
+ *
+ * Wakes are coalesced: while a verification is in flight, {@link #tryBegin()} returns false
+ * and the wake is dropped, which also lets the caller reuse a single snapshot array. The
+ * executor queue is bounded; a submit that still does not fit is counted as rejected.
+ */
+public final class VerificationDispatcher {
+    private final ThreadPoolExecutor executor;
+    private final AtomicBoolean inFlight = new AtomicBoolean(false);
+
+    private final AtomicLong submittedWakes = new AtomicLong();
+    private final AtomicLong completedWakes = new AtomicLong();
+    private final AtomicLong coalescedWakes = new AtomicLong();
+    private final AtomicLong rejectedWakes = new AtomicLong();
+
+    public VerificationDispatcher(String threadName, int queueCapacity) {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, threadName);
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Claims the single verification slot. Returns false, and counts the wake as coalesced,
+     * if a verification is already queued or running.
+     */
+    public boolean tryBegin() {
+        if (inFlight.compareAndSet(false, true)) {
+            return true;
+        }
+        coalescedWakes.incrementAndGet();
+        return false;
+    }
+
+    /** Queues {@code task} after a successful {@link #tryBegin()}. Never blocks. */
+    public boolean submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    completedWakes.incrementAndGet();
+                    inFlight.set(false);
+                }
+            });
+            submittedWakes.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedWakes.incrementAndGet();
+            inFlight.set(false);
+            return false;
+        }
+    }
+
+    /** Releases the slot claimed by {@link #tryBegin()} without running anything. */
+    public void cancel() {
+        inFlight.set(false);
+    }
+
+    /** Queued plus running verifications. */
+    public int getQueueDepth() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    public long getSubmittedWakes() {
+        return submittedWakes.get();
+    }
+
+    public long getCompletedWakes() {
+        return completedWakes.get();
+    }
+
+    public long getCoalescedWakes() {
+        return coalescedWakes.get();
+    }
+
+    public long getRejectedWakes() {
+        return rejectedWakes.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "VerificationDispatcher{depth=" + getQueueDepth()
+                + ", submitted=" + getSubmittedWakes()
+                + ", completed=" + getCompletedWakes()
+                + ", coalesced=" + getCoalescedWakes()
+                + ", rejected=" + getRejectedWakes() + "}";
+    }
+}
@@ -0,0 +1,255 @@
+package com.navia.navia;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Named Eagle speaker profiles in a single versioned, checksummed file.
+ *
+ * Layout (little endian): magic, version, speaker count, then for each speaker a
+ * length-prefixed UTF-8 name and length-prefixed profile bytes, followed by a CRC32 of
+ * everything before it. The file is memory-mapped once per process and cached; updates
+ * are written to a temp file, synced and renamed over the old one, so a crash leaves
+ * either the old or the new store, never a torn one. A store that fails its checksum or
+ * format checks is renamed aside to {@code voice_profiles.bin.corrupt} and treated as empty,
+ * so re-enrolling writes a fresh store instead of failing on the bad one forever.
+ * Speaker names are limited to {@link #MAX_NAME_BYTES} bytes of UTF-8, the width of their
+ * length prefix.
+ */
+public final class VoiceProfileStore {
+    public static final String DEFAULT_SPEAKER = "default";
+    public static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private static final String STORE_FILE = "voice_profiles.bin";
+    private static final String LEGACY_FILE = "voice_profile.bin";
+    private static final int MAGIC = 0x5350564E; // "NVPS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int CRC_BYTES = 4;
+
+    private static VoiceProfileStore instance;
+
+    private final File storeFile;
+    private final File tempFile;
+    private final File corruptFile;
+    private final File legacyFile;
+    private Map<String, byte[]> profiles;
+    private String corruptionReport;
+
+    public VoiceProfileStore(File dir) {
+        storeFile = new File(dir, STORE_FILE);
+        tempFile = new File(dir, STORE_FILE + ".tmp");
+        corruptFile = new File(dir, STORE_FILE + ".corrupt");
+        legacyFile = new File(dir, LEGACY_FILE);
+    }
+
+    public static synchronized VoiceProfileStore getInstance(File dir) {
+        if (instance == null) {
+            instance = new VoiceProfileStore(dir);
+        }
+        return instance;
+    }
+
+    /** Speaker name to profile bytes, in enrollment order. */
+    public synchronized Map<String, byte[]> getProfiles() throws IOException {
+        return Collections.unmodifiableMap(load());
+    }
+
+    public synchronized boolean isEmpty() throws IOException {
+        return load().isEmpty();
+    }
+
+    public synchronized void put(String name, byte[] profile) throws IOException {
+        name = name == null ? DEFAULT_SPEAKER : name;
+        checkName(name);
+        Map<String, byte[]> updated = new LinkedHashMap<>(load());
+        updated.put(name, profile.clone());
+        write(updated);
+    }
+
+    public synchronized boolean remove(String name) throws IOException {
+        Map<String, byte[]> updated = new LinkedHashMap<>(load());
+        if (updated.remove(name) == null) {
+            return false;
+        }
+        write(updated);
+        return true;
+    }
+
+    public synchronized void clear() throws IOException {
+        write(new LinkedHashMap<>());
+    }
+
+    /** Throws if {@code name} does not fit the store's two-byte length prefix. */
+    public static void checkName(String name) {
+        int length = name.getBytes(StandardCharsets.UTF_8).length;
+        if (length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Speaker name is " + length + " bytes, the limit is " + MAX_NAME_BYTES);
+        }
+    }
+
+    /**
+     * Why the last store was moved aside as corrupt, or null. Cleared once taken so the
+     * caller reports it once.
+     */
+    public synchronized String takeCorruptionReport() {
+        String report = corruptionReport;
+        corruptionReport = null;
+        return report;
+    }
+
+    private Map<String, byte[]> load() throws IOException {
+        if (profiles != null) {
+            return profiles;
+        }
+        if (storeFile.exists()) {
+            try {
+                profiles = read(storeFile);
+            } catch (CorruptStoreException e) {
+                quarantine(e);
+                profiles = new LinkedHashMap<>();
+            }
+        } else if (legacyFile.exists()) {
+            // ترحيل الملف القديم (متحدث واحد) إلى المخزن الجديد مرة واحدة.
+            Map<String, byte[]> migrated = new LinkedHashMap<>();
+            migrated.put(DEFAULT_SPEAKER, readFully(legacyFile));
+            write(migrated);
+            //noinspection ResultOfMethodCallIgnored
+            legacyFile.delete();
+        } else {
+            profiles = new LinkedHashMap<>();
+        }
+        return profiles;
+    }
+
+    // نحتفظ بالملف التالف جانباً للتشخيص؛ آخر نسخة تالفة فقط.
+    private void quarantine(CorruptStoreException cause) throws IOException {
+        corruptionReport = cause.getMessage();
+        //noinspection ResultOfMethodCallIgnored
+        corruptFile.delete();
+        if (!storeFile.renameTo(corruptFile) && !storeFile.delete()) {
+            throw new IOException("Failed to move corrupt voice profile store aside", cause);
+        }
+    }
+
+    private static Map<String, byte[]> read(File file) throws IOException {
+        try {
+            return parse(file);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            // العدّ أو الأطوال تشير خارج الملف رغم صحة CRC.
+            throw new CorruptStoreException("Voice profile store is truncated");
+        }
+    }
+
+    private static Map<String, byte[]> parse(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + CRC_BYTES || size > Integer.MAX_VALUE) {
+                throw new CorruptStoreException("Voice profile store has invalid size " + size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            int bodyLength = (int) size - CRC_BYTES;
+            // CRC32.update(ByteBuffer) needs API 26, so checksum the mapping in small chunks.
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[4096];
+            ByteBuffer body = mapped.duplicate();
+            body.limit(bodyLength);
+            while (body.hasRemaining()) {
+                int n = Math.min(chunk.length, body.remaining());
+                body.get(chunk, 0, n);
+                crc.update(chunk, 0, n);
+            }
+            if ((int) crc.getValue() != mapped.getInt(bodyLength)) {
+                throw new CorruptStoreException("Voice profile store checksum mismatch");
+            }
+
+            if (mapped.getInt() != MAGIC) {
+                throw new CorruptStoreException("Not a voice profile store");
+            }
+            int version = mapped.getInt();
+            if (version != VERSION) {
+                throw new CorruptStoreException("Unsupported voice profile store version " + version);
+            }
+            int count = mapped.getInt();
+            Map<String, byte[]> result = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[mapped.getShort() & 0xFFFF];
+                mapped.get(name);
+                byte[] data = new byte[mapped.getInt()];
+                mapped.get(data);
+                result.put(new String(name, StandardCharsets.UTF_8), data);
+            }
+            return result;
+        }
+    }
+
+    private void write(Map<String, byte[]> updated) throws IOException {
+        int size = HEADER_BYTES + CRC_BYTES;
+        for (Map.Entry<String, byte[]> e : updated.entrySet()) {
+            size += 2 + e.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + e.getValue().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(updated.size());
+        for (Map.Entry<String, byte[]> e : updated.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            if (name.length > MAX_NAME_BYTES) {
+                // لا نكتب طولاً مقطوعاً بـ CRC صحيح.
+                throw new IllegalArgumentException("Speaker name too long: " + name.length + " bytes");
+            }
+            buffer.putShort((short) name.length).put(name);
+            buffer.putInt(e.getValue().length).put(e.getValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, size - CRC_BYTES);
+        buffer.putInt((int) crc.getValue());
+
+        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+            fos.write(buffer.array());
+            fos.getFD().sync();
+        }
+        if (!tempFile.renameTo(storeFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Failed to replace voice profile store");
+        }
+        profiles = updated;
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream fis = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int n = fis.read(data, offset, data.length - offset);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file.getName());
+                }
+                offset += n;
+            }
+        }
+        return data;
+    }
+
+    /** Format or checksum failure, as opposed to an I/O error reading a valid file. */
+    private static final class CorruptStoreException extends IOException {
+        CorruptStoreException(String message) {
+            super(message);
+        }
+    }
+}
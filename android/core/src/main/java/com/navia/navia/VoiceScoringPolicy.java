@@ -0,0 +1,244 @@
+package com.navia.navia;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Turns a sequence of per-frame Eagle scores into an accept/reject decision.
+ *
+ * Frames are fed in time order through {@link #onScore(float)}. A policy may return
+ * {@link #ACCEPT} or {@link #REJECT} before all frames are seen, in which case the caller
+ * stops running Eagle; otherwise {@link #decide()} gives the final answer.
+ * Instances are stateful and not thread-safe.
+ */
+public abstract class VoiceScoringPolicy {
+    public static final int UNDECIDED = 0;
+    public static final int ACCEPT = 1;
+    public static final int REJECT = 2;
+
+    public static final String MAX = "max";
+    public static final String TOP_K_MEAN = "topk";
+    public static final String SEQUENTIAL = "sequential";
+
+    public static final float DEFAULT_ACCEPT_BOUND = 1.5f;
+    public static final float DEFAULT_REJECT_BOUND = -3.0f;
+    // Max/top-k early reject: the wake word sits at the tail of the buffer and may follow
+    // seconds of silence that score near zero, so these policies only reject once the whole
+    // frame budget given to reset(int) has been scored and nothing came near the speaker.
+    public static final float DEFAULT_EARLY_REJECT_FLOOR = 0.1f;
+    public static final int WHOLE_BUFFER = Integer.MAX_VALUE;
+    private static final float SEQUENTIAL_SPEECH_FLOOR = 0.15f;
+    private static final int SEQUENTIAL_MIN_FRAMES_BEFORE_REJECT = 31;
+
+    protected final float threshold;
+    // Early reject only kicks in after this many frames, so leading silence in a snapshot
+    // cannot reject the speaker before the keyword itself is scored.
+    protected final int minFramesBeforeReject;
+    protected final float earlyReject;
+    protected int frames = 0;
+    private int rejectAfter;
+
+    protected VoiceScoringPolicy(float threshold, float earlyReject, int minFramesBeforeReject) {
+        this.threshold = threshold;
+        this.earlyReject = earlyReject;
+        this.minFramesBeforeReject = minFramesBeforeReject;
+        this.rejectAfter = minFramesBeforeReject;
+    }
+
+    /** Builds a policy by name ({@link #MAX}, {@link #TOP_K_MEAN}, {@link #SEQUENTIAL}); unknown names fall back to max. */
+    public static VoiceScoringPolicy create(String name, float threshold) {
+        return create(name, threshold, DEFAULT_ACCEPT_BOUND, DEFAULT_REJECT_BOUND);
+    }
+
+    /** Same as {@link #create(String, float)} with explicit evidence bounds for {@link #SEQUENTIAL}. */
+    public static VoiceScoringPolicy create(String name, float threshold, float acceptBound, float rejectBound) {
+        String key = name == null ? MAX : name.toLowerCase(Locale.ROOT);
+        switch (key) {
+            case TOP_K_MEAN:
+                return new TopKMean(threshold, 3, DEFAULT_EARLY_REJECT_FLOOR, WHOLE_BUFFER);
+            case SEQUENTIAL:
+                if (!(acceptBound > 0) || !(rejectBound < 0)) {
+                    throw new IllegalArgumentException("acceptBound must be positive and rejectBound negative");
+                }
+                return new Sequential(threshold, SEQUENTIAL_SPEECH_FLOOR, acceptBound, rejectBound,
+                        SEQUENTIAL_MIN_FRAMES_BEFORE_REJECT);
+            case MAX:
+            default:
+                return new Max(threshold, DEFAULT_EARLY_REJECT_FLOOR, WHOLE_BUFFER);
+        }
+    }
+
+    public void reset() {
+        frames = 0;
+        rejectAfter = minFramesBeforeReject;
+    }
+
+    /**
+     * Resets for a run of {@code frameBudget} frames, the length of the buffer about to be
+     * scored. Early reject then waits for the smaller of that budget and the policy's own
+     * minimum, so {@link #WHOLE_BUFFER} means "only after the last frame".
+     */
+    public void reset(int frameBudget) {
+        reset();
+        if (frameBudget > 0) {
+            rejectAfter = Math.min(minFramesBeforeReject, frameBudget);
+        }
+    }
+
+    /** Feeds one frame score and returns {@link #UNDECIDED}, {@link #ACCEPT} or {@link #REJECT}. */
+    public final int onScore(float score) {
+        frames++;
+        update(score);
+        if (isAccepted()) {
+            return ACCEPT;
+        }
+        if (frames >= rejectAfter && aggregate() < earlyReject) {
+            return REJECT;
+        }
+        return UNDECIDED;
+    }
+
+    /** Final decision once no more frames are available. */
+    public boolean decide() {
+        return aggregate() > threshold;
+    }
+
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /** Aggregate score so far, for logging and metrics. */
+    public abstract float aggregate();
+
+    protected abstract void update(float score);
+
+    protected abstract boolean isAccepted();
+
+    /** Highest frame score. Once it crosses the threshold no later frame can undo it, so accept immediately. */
+    public static final class Max extends VoiceScoringPolicy {
+        private float highestScore = 0;
+
+        public Max(float threshold, float earlyReject, int minFramesBeforeReject) {
+            super(threshold, earlyReject, minFramesBeforeReject);
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            highestScore = 0;
+        }
+
+        @Override
+        protected void update(float score) {
+            if (score > highestScore) highestScore = score;
+        }
+
+        @Override
+        protected boolean isAccepted() {
+            return highestScore > threshold;
+        }
+
+        @Override
+        public float aggregate() {
+            return highestScore;
+        }
+    }
+
+    /**
+     * Mean of the k highest frame scores. Less sensitive to a single noisy frame than
+     * {@link Max}; the mean can only grow, so it accepts as soon as it crosses the threshold.
+     */
+    public static final class TopKMean extends VoiceScoringPolicy {
+        private final float[] top;
+        private int size = 0;
+
+        public TopKMean(float threshold, int k, float earlyReject, int minFramesBeforeReject) {
+            super(threshold, earlyReject, minFramesBeforeReject);
+            if (k <= 0) throw new IllegalArgumentException("k must be positive");
+            this.top = new float[k];
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            size = 0;
+            Arrays.fill(top, 0f);
+        }
+
+        @Override
+        protected void update(float score) {
+            // top[] is kept in descending order; k is tiny so insertion is cheaper than a heap.
+            int i;
+            if (size < top.length) {
+                i = size++;
+            } else if (score > top[top.length - 1]) {
+                i = top.length - 1;
+            } else {
+                return;
+            }
+            while (i > 0 && top[i - 1] < score) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = score;
+        }
+
+        @Override
+        protected boolean isAccepted() {
+            return size == top.length && aggregate() > threshold;
+        }
+
+        @Override
+        public float aggregate() {
+            float sum = 0;
+            for (int i = 0; i < size; i++) sum += top[i];
+            // Fewer than k frames still average over k so a single frame cannot pass alone.
+            return sum / top.length;
+        }
+    }
+
+    /**
+     * Sequential probability-ratio style test: each frame adds {@code score - threshold}
+     * to a running sum. Frames below {@code speechFloor} (silence) carry no evidence.
+     * Accepts when the sum reaches {@code acceptBound}, rejects at {@code rejectBound}.
+     */
+    public static final class Sequential extends VoiceScoringPolicy {
+        private final float speechFloor;
+        private final float acceptBound;
+        private float evidence = 0;
+
+        public Sequential(float threshold, float speechFloor, float acceptBound, float rejectBound, int minFramesBeforeReject) {
+            super(threshold, rejectBound, minFramesBeforeReject);
+            this.speechFloor = speechFloor;
+            this.acceptBound = acceptBound;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            evidence = 0;
+        }
+
+        @Override
+        protected void update(float score) {
+            if (score >= speechFloor) {
+                evidence += score - threshold;
+            }
+        }
+
+        @Override
+        protected boolean isAccepted() {
+            return evidence >= acceptBound;
+        }
+
+        @Override
+        public float aggregate() {
+            return evidence;
+        }
+
+        @Override
+        public boolean decide() {
+            return evidence > 0;
+        }
+    }
+}
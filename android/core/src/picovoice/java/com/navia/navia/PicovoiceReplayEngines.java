@@ -0,0 +1,111 @@
+package com.navia.navia;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import ai.picovoice.eagle.Eagle;
+import ai.picovoice.eagle.EagleProfile;
+import ai.picovoice.porcupine.Porcupine;
+
+/**
+ * Porcupine and Eagle from the Picovoice Java SDK, for replays on a machine with an
+ * access key. Options: {@code --access-key}, {@code --keyword} (.ppn file),
+ * {@code --sensitivity} and one {@code --profile} per enrolled speaker (exported Eagle
+ * profile bytes, as stored by VoiceProfileStore).
+ */
+public final class PicovoiceReplayEngines implements ReplayEngines {
+
+    @Override
+    public KeywordEngine createKeywordEngine(Map<String, String> options) throws Exception {
+        Porcupine.Builder builder = new Porcupine.Builder()
+                .setAccessKey(required(options, "access-key"))
+                .setKeywordPath(required(options, "keyword"));
+        if (options.containsKey("sensitivity")) {
+            builder.setSensitivity(Float.parseFloat(options.get("sensitivity")));
+        }
+        return new PorcupineKeyword(builder);
+    }
+
+    @Override
+    public SpeakerEngine createSpeakerEngine(Map<String, String> options) throws Exception {
+        String[] paths = required(options, "profile").split(",");
+        EagleProfile[] profiles = new EagleProfile[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            profiles[i] = new EagleProfile(Files.readAllBytes(Paths.get(paths[i])));
+        }
+        Eagle eagle = new Eagle.Builder()
+                .setAccessKey(required(options, "access-key"))
+                .setSpeakerProfiles(profiles)
+                .build();
+        return new EagleSpeaker(eagle);
+    }
+
+    private static String required(Map<String, String> options, String key) {
+        String value = options.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("--" + key + " is required for the picovoice engines");
+        }
+        return value;
+    }
+
+    private static final class PorcupineKeyword implements KeywordEngine {
+        private final Porcupine.Builder builder;
+        private Porcupine porcupine;
+
+        PorcupineKeyword(Porcupine.Builder builder) throws Exception {
+            this.builder = builder;
+            porcupine = builder.build();
+        }
+
+        @Override
+        public int getFrameLength() {
+            return porcupine.getFrameLength();
+        }
+
+        @Override
+        public int process(short[] frame) throws Exception {
+            return porcupine.process(frame);
+        }
+
+        @Override
+        public void reset() throws Exception {
+            // Porcupine has no reset; a fresh instance keeps files independent.
+            porcupine.delete();
+            porcupine = builder.build();
+        }
+
+        @Override
+        public void close() {
+            porcupine.delete();
+        }
+    }
+
+    private static final class EagleSpeaker implements SpeakerEngine {
+        private final Eagle eagle;
+
+        EagleSpeaker(Eagle eagle) {
+            this.eagle = eagle;
+        }
+
+        @Override
+        public int getFrameLength() {
+            return eagle.getFrameLength();
+        }
+
+        @Override
+        public float score(short[] frame) throws Exception {
+            return FrameVerifier.bestScore(eagle.process(frame));
+        }
+
+        @Override
+        public void reset() throws Exception {
+            eagle.reset();
+        }
+
+        @Override
+        public void close() {
+            eagle.delete();
+        }
+    }
+}
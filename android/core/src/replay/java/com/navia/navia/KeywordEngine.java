@@ -0,0 +1,15 @@
+package com.navia.navia;
+
+/** Wake word detector fed one frame at a time, as Porcupine is in PorcupainService. */
+public interface KeywordEngine extends AutoCloseable {
+    int getFrameLength();
+
+    /** Returns the index of the detected keyword, or -1. */
+    int process(short[] frame) throws Exception;
+
+    /** Forgets any state carried from the previous recording. */
+    void reset() throws Exception;
+
+    @Override
+    void close();
+}
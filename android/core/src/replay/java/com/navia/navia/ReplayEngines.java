@@ -0,0 +1,13 @@
+package com.navia.navia;
+
+import java.util.Map;
+
+/**
+ * Creates the engines for one replay run. Implementations need a public no-arg
+ * constructor; options are the {@code --name value} pairs from the command line.
+ */
+public interface ReplayEngines {
+    KeywordEngine createKeywordEngine(Map<String, String> options) throws Exception;
+
+    SpeakerEngine createSpeakerEngine(Map<String, String> options) throws Exception;
+}
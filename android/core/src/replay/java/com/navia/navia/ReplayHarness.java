@@ -0,0 +1,200 @@
+package com.navia.navia;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays a corpus of recordings through {@link ReplayPipeline} as fast as the JVM allows
+ * and prints decision latency percentiles, CPU time per audio hour and the accept/reject
+ * confusion.
+ *
+ * The corpus is two folders of 16 kHz mono WAV or PCM files: {@code accept/} holds the
+ * enrolled speaker saying the wake word, {@code reject/} holds everything that must not
+ * open the app (other speakers, no wake word, noise).
+ *
+ * <pre>
+ * ./gradlew :core:replay --args="--corpus corpus"
+ * ./gradlew :core:replay -Ppicovoice --args="--corpus corpus --engines picovoice
+ *     --access-key KEY --keyword noor.ppn --profile owner.eagle"
+ * </pre>
+ *
+ * Other options: {@code --policy max|topk|sequential}, {@code --threshold 0.6},
+ * {@code --vad false} to feed every frame to the keyword engine (the gate is on by default,
+ * as in the service), and
+ * {@code --engines} with the class name of any {@link ReplayEngines}.
+ */
+public final class ReplayHarness {
+    // نفس نافذة الخدمة: أربع ثوانٍ من إطارات 512 عينة.
+    private static final int RING_SECONDS = 4;
+
+    private ReplayHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String corpusOption = options.get("corpus");
+        if (corpusOption == null) {
+            System.err.println("usage: ReplayHarness --corpus DIR [--engines stub|picovoice|CLASS]"
+                    + " [--policy max|topk|sequential] [--threshold 0.6] [engine options]");
+            System.exit(2);
+        }
+        Path corpus = Paths.get(corpusOption);
+        List<Path> accept = listRecordings(corpus.resolve("accept"));
+        List<Path> reject = listRecordings(corpus.resolve("reject"));
+        if (accept.isEmpty() && reject.isEmpty()) {
+            System.err.println("No .wav or .pcm files under " + corpus.resolve("accept") + " or " + corpus.resolve("reject"));
+            System.exit(2);
+        }
+
+        ReplayEngines engines = loadEngines(options.getOrDefault("engines", "stub"));
+        String policyName = options.getOrDefault("policy", VoiceScoringPolicy.MAX);
+        float threshold = Float.parseFloat(options.getOrDefault("threshold", "0.6"));
+        boolean vad = Boolean.parseBoolean(options.getOrDefault("vad", "true"));
+
+        try (KeywordEngine keyword = engines.createKeywordEngine(options);
+             SpeakerEngine speaker = engines.createSpeakerEngine(options)) {
+            int ringFrames = WavReader.SAMPLE_RATE * RING_SECONDS / keyword.getFrameLength();
+            ReplayPipeline pipeline = new ReplayPipeline(keyword, speaker,
+                    VoiceScoringPolicy.create(policyName, threshold), ringFrames,
+                    vad ? EnergyVadGate.forWakeWord(keyword.getFrameLength()) : null);
+            Report report = new Report();
+            for (Path file : accept) report.add(file, true, pipeline);
+            for (Path file : reject) report.add(file, false, pipeline);
+            System.out.println("engines=" + engines.getClass().getSimpleName()
+                    + " policy=" + policyName + " threshold=" + threshold + " vad=" + vad);
+            report.print();
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            String value = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "true";
+            // --profile may repeat, one file per enrolled speaker.
+            options.merge(key, value, (a, b) -> a + "," + b);
+        }
+        return options;
+    }
+
+    private static ReplayEngines loadEngines(String name) throws ReflectiveOperationException {
+        switch (name) {
+            case "stub":
+                return new StubReplayEngines();
+            case "picovoice":
+                // Only on the classpath when built with -Ppicovoice.
+                name = "com.navia.navia.PicovoiceReplayEngines";
+                break;
+            default:
+                break;
+        }
+        return (ReplayEngines) Class.forName(name).getDeclaredConstructor().newInstance();
+    }
+
+    private static List<Path> listRecordings(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+                return name.endsWith(".wav") || name.endsWith(".pcm");
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /** Accumulates per-file results; CPU time covers the pipeline only, not file loading. */
+    static final class Report {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private long[] latencies = new long[64];
+        private int latencyCount = 0;
+        private long audioSamples = 0;
+        private long cpuNs = 0;
+        private long wallNs = 0;
+        private int trueAccepts = 0;
+        private int falseRejects = 0;
+        private int missedWakes = 0;
+        private int falseAccepts = 0;
+        private int trueRejects = 0;
+        private int detections = 0;
+        private long frames = 0;
+        private long keywordFrames = 0;
+
+        void add(Path file, boolean shouldOpen, ReplayPipeline pipeline) throws Exception {
+            short[] pcm = WavReader.read(file);
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long wallStart = System.nanoTime();
+            ReplayPipeline.Result result = pipeline.run(pcm);
+            wallNs += System.nanoTime() - wallStart;
+            cpuNs += threads.getCurrentThreadCpuTime() - cpuStart;
+            audioSamples += pcm.length;
+
+            detections += result.detections;
+            frames += result.frames;
+            keywordFrames += result.keywordFrames;
+            for (long latency : result.latenciesNs) {
+                if (latencyCount == latencies.length) latencies = Arrays.copyOf(latencies, latencyCount * 2);
+                latencies[latencyCount++] = latency;
+            }
+            if (shouldOpen) {
+                if (result.opened()) {
+                    trueAccepts++;
+                } else {
+                    falseRejects++;
+                    if (result.detections == 0) missedWakes++;
+                    System.out.println("false reject" + (result.detections == 0 ? " (no wake): " : ": ") + file);
+                }
+            } else if (result.opened()) {
+                falseAccepts++;
+                System.out.println("false accept: " + file);
+            } else {
+                trueRejects++;
+            }
+        }
+
+        void print() {
+            double audioSeconds = (double) audioSamples / WavReader.SAMPLE_RATE;
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            System.out.printf(Locale.ROOT, "audio: %.1f s in %d files, %.1fx real time%n",
+                    audioSeconds, trueAccepts + falseRejects + falseAccepts + trueRejects,
+                    wallNs == 0 ? 0.0 : audioSeconds / (wallNs / 1e9));
+            System.out.printf(Locale.ROOT, "cpu: %.3f s per audio hour%n",
+                    audioSeconds == 0 ? 0.0 : (cpuNs / 1e9) / (audioSeconds / 3600));
+            System.out.printf(Locale.ROOT, "keyword engine: %d of %d frames, %.1f%% gated%n",
+                    keywordFrames, frames, frames == 0 ? 0.0 : 100.0 * (frames - keywordFrames) / frames);
+            System.out.printf(Locale.ROOT, "detection-to-decision over %d wakes: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms%n",
+                    detections, percentileMs(sorted, 50), percentileMs(sorted, 95), percentileMs(sorted, 99));
+            System.out.println("confusion (rows: expected, columns: outcome)");
+            System.out.printf(Locale.ROOT, "  accept: opened %d, rejected %d (of which no wake %d)%n",
+                    trueAccepts, falseRejects, missedWakes);
+            System.out.printf(Locale.ROOT, "  reject: opened %d, rejected %d%n", falseAccepts, trueRejects);
+            System.out.printf(Locale.ROOT, "  FAR %.2f%%, FRR %.2f%%%n",
+                    rate(falseAccepts, falseAccepts + trueRejects), rate(falseRejects, trueAccepts + falseRejects));
+        }
+
+        // Nearest-rank percentile.
+        private static double percentileMs(long[] sorted, int percentile) {
+            if (sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+
+        private static double rate(int count, int total) {
+            return total == 0 ? 0 : 100.0 * count / total;
+        }
+    }
+}
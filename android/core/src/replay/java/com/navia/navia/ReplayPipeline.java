@@ -0,0 +1,97 @@
+package com.navia.navia;
+
+import java.util.Arrays;
+
+/**
+ * The PorcupainService capture loop without AudioRecord: every frame goes into the
+ * four-second ring buffer and, through the optional {@link EnergyVadGate}, the keyword
+ * engine; a detection snapshots the ring and
+ * runs the scoring policy over it, as verifyAndOpenApp does. Verification runs inline, so
+ * each decision latency is the snapshot plus the verification, with no queueing.
+ */
+public final class ReplayPipeline {
+    private final KeywordEngine keywordEngine;
+    private final SpeakerEngine speakerEngine;
+    private final VoiceScoringPolicy policy;
+    private final EnergyVadGate gate;
+    private final AudioRingBuffer ring;
+    private final FrameVerifier verifier;
+    private final short[] frame;
+    private final short[] snapshot;
+
+    public ReplayPipeline(KeywordEngine keywordEngine, SpeakerEngine speakerEngine,
+                          VoiceScoringPolicy policy, int ringFrames, EnergyVadGate gate) {
+        int frameLength = keywordEngine.getFrameLength();
+        if (speakerEngine.getFrameLength() != frameLength) {
+            throw new IllegalArgumentException("keyword frame " + frameLength
+                    + " != speaker frame " + speakerEngine.getFrameLength());
+        }
+        this.keywordEngine = keywordEngine;
+        this.speakerEngine = speakerEngine;
+        this.policy = policy;
+        this.gate = gate;
+        ring = new AudioRingBuffer(frameLength, ringFrames);
+        verifier = new FrameVerifier(frameLength);
+        frame = new short[frameLength];
+        snapshot = new short[ring.getCapacitySamples()];
+    }
+
+    /** What one recording did: wakes, accepted wakes and each detection-to-decision time. */
+    public static final class Result {
+        public final int detections;
+        public final int accepts;
+        public final long[] latenciesNs;
+        public final long frames;
+        public final long keywordFrames;
+
+        Result(int detections, int accepts, long[] latenciesNs, long frames, long keywordFrames) {
+            this.detections = detections;
+            this.accepts = accepts;
+            this.latenciesNs = latenciesNs;
+            this.frames = frames;
+            this.keywordFrames = keywordFrames;
+        }
+
+        /** Whether the app would have opened. */
+        public boolean opened() {
+            return accepts > 0;
+        }
+    }
+
+    public Result run(short[] pcm) throws Exception {
+        ring.clear();
+        keywordEngine.reset();
+        if (gate != null) gate.reset();
+        long frames = 0;
+        long keywordFrames = 0;
+        int detections = 0;
+        int accepts = 0;
+        long[] latencies = new long[4];
+        // Trailing samples that do not fill a frame are dropped, as readFrame() would wait for more.
+        for (int offset = 0; offset + frame.length <= pcm.length; offset += frame.length) {
+            System.arraycopy(pcm, offset, frame, 0, frame.length);
+            ring.write(frame);
+            frames++;
+            int pending = gate != null ? gate.offer(frame) : 1;
+            keywordFrames += pending;
+            for (int i = 0; i < pending; i++) {
+                if (keywordEngine.process(gate != null ? gate.frameAt(i) : frame) != 0) continue;
+                // A detection in pre-roll still snapshots the ring as of the current frame, as on the device.
+                long detectedNs = System.nanoTime();
+                boolean accepted = verify();
+                long latency = System.nanoTime() - detectedNs;
+                if (detections == latencies.length) latencies = Arrays.copyOf(latencies, detections * 2);
+                latencies[detections++] = latency;
+                if (accepted) accepts++;
+            }
+        }
+        return new Result(detections, accepts, Arrays.copyOf(latencies, detections), frames, keywordFrames);
+    }
+
+    private boolean verify() throws Exception {
+        int numSamples = ring.snapshot(snapshot);
+        if (numSamples == 0) return false;
+        speakerEngine.reset();
+        return verifier.verify(snapshot, numSamples, speakerEngine, policy);
+    }
+}
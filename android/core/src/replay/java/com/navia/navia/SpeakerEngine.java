@@ -0,0 +1,10 @@
+package com.navia.navia;
+
+/** Speaker scorer for replay; on the device this is Eagle behind {@link FrameScorer}. */
+public interface SpeakerEngine extends FrameScorer<Exception>, AutoCloseable {
+    /** Called before each snapshot, as the warm Eagle pool does on release. */
+    void reset() throws Exception;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,124 @@
+package com.navia.navia;
+
+import java.util.Map;
+
+/**
+ * Deterministic stand-ins for Porcupine and Eagle, for CI boxes without Picovoice.
+ *
+ * The keyword stub fires on a sustained energy onset; the speaker stub scores each frame
+ * by how close its zero-crossing rate is to a target. Neither is a model: the numbers are
+ * reproducible run to run, so a change in latency or in the confusion counts comes from
+ * the buffering and scoring code under test, not from the engines.
+ */
+public final class StubReplayEngines implements ReplayEngines {
+    static final int FRAME_LENGTH = 512;
+
+    @Override
+    public KeywordEngine createKeywordEngine(Map<String, String> options) {
+        return new EnergyOnsetKeyword(
+                intOption(options, "stub-onset-rms", 1000),
+                intOption(options, "stub-onset-frames", 8),
+                intOption(options, "stub-release-frames", 16));
+    }
+
+    @Override
+    public SpeakerEngine createSpeakerEngine(Map<String, String> options) {
+        return new ZeroCrossingSpeaker(
+                Float.parseFloat(options.getOrDefault("stub-zcr", "0.1")),
+                intOption(options, "stub-silence-rms", 300));
+    }
+
+    private static int intOption(Map<String, String> options, String key, int fallback) {
+        String value = options.get(key);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    static double rms(short[] frame) {
+        long sum = 0;
+        for (short s : frame) sum += s * s;
+        return Math.sqrt((double) sum / frame.length);
+    }
+
+    /** Fires once after {@code onsetFrames} loud frames, then waits for {@code releaseFrames} quiet ones. */
+    static final class EnergyOnsetKeyword implements KeywordEngine {
+        private final int onsetRms;
+        private final int onsetFrames;
+        private final int releaseFrames;
+        private int loud = 0;
+        private int quiet = 0;
+        private boolean armed = true;
+
+        EnergyOnsetKeyword(int onsetRms, int onsetFrames, int releaseFrames) {
+            this.onsetRms = onsetRms;
+            this.onsetFrames = onsetFrames;
+            this.releaseFrames = releaseFrames;
+        }
+
+        @Override
+        public int getFrameLength() {
+            return FRAME_LENGTH;
+        }
+
+        @Override
+        public int process(short[] frame) {
+            if (rms(frame) >= onsetRms) {
+                loud++;
+                quiet = 0;
+            } else {
+                loud = 0;
+                if (++quiet >= releaseFrames) armed = true;
+            }
+            if (armed && loud >= onsetFrames) {
+                armed = false;
+                return 0;
+            }
+            return -1;
+        }
+
+        @Override
+        public void reset() {
+            loud = 0;
+            quiet = 0;
+            armed = true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Score 1 at the target zero-crossing rate, falling linearly to 0; silent frames score 0. */
+    static final class ZeroCrossingSpeaker implements SpeakerEngine {
+        private final float targetZcr;
+        private final int silenceRms;
+
+        ZeroCrossingSpeaker(float targetZcr, int silenceRms) {
+            this.targetZcr = targetZcr;
+            this.silenceRms = silenceRms;
+        }
+
+        @Override
+        public int getFrameLength() {
+            return FRAME_LENGTH;
+        }
+
+        @Override
+        public float score(short[] frame) {
+            if (rms(frame) < silenceRms) return 0f;
+            int crossings = 0;
+            for (int i = 1; i < frame.length; i++) {
+                if ((frame[i - 1] < 0) != (frame[i] < 0)) crossings++;
+            }
+            float zcr = (float) crossings / (frame.length - 1);
+            return Math.max(0f, 1f - Math.abs(zcr - targetZcr) / targetZcr);
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.navia.navia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads 16 kHz, 16-bit mono PCM from a RIFF/WAVE file or a headerless little-endian
+ * {@code .pcm} file. Anything else is rejected rather than resampled, so the harness
+ * always sees exactly what AudioRecord would deliver.
+ */
+public final class WavReader {
+    public static final int SAMPLE_RATE = 16000;
+
+    private WavReader() {
+    }
+
+    public static short[] read(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (file.getFileName().toString().toLowerCase().endsWith(".pcm")) {
+            return toSamples(buffer, 0, bytes.length);
+        }
+        if (bytes.length < 12 || buffer.getInt(0) != 0x46464952 || buffer.getInt(8) != 0x45564157) {
+            throw new IOException(file + ": not a RIFF/WAVE file");
+        }
+        boolean formatChecked = false;
+        int offset = 12;
+        while (offset + 8 <= bytes.length) {
+            int chunkId = buffer.getInt(offset);
+            int chunkSize = buffer.getInt(offset + 4);
+            int body = offset + 8;
+            int remaining = bytes.length - body;
+            if (chunkId == 0x61746164) { // "data"
+                if (!formatChecked) {
+                    throw new IOException(file + ": data chunk before fmt chunk");
+                }
+                // Streaming writers leave the size at 0 or 0xFFFFFFFF when they cannot seek back.
+                if (chunkSize == 0 || chunkSize == -1) {
+                    return toSamples(buffer, body, remaining);
+                }
+                checkChunkSize(file, "data", chunkSize, remaining);
+                return toSamples(buffer, body, chunkSize);
+            }
+            checkChunkSize(file, chunkIdString(chunkId), chunkSize, remaining);
+            if (chunkId == 0x20746d66) { // "fmt "
+                if (chunkSize < 16) {
+                    throw new IOException(file + ": fmt chunk too short (" + chunkSize + " bytes)");
+                }
+                int format = buffer.getShort(body) & 0xffff;
+                int channels = buffer.getShort(body + 2) & 0xffff;
+                int sampleRate = buffer.getInt(body + 4);
+                int bits = buffer.getShort(body + 14) & 0xffff;
+                if (format != 1 || channels != 1 || sampleRate != SAMPLE_RATE || bits != 16) {
+                    throw new IOException(file + ": expected 16 kHz 16-bit mono PCM, got format " + format
+                            + ", " + channels + " ch, " + sampleRate + " Hz, " + bits + " bit");
+                }
+                formatChecked = true;
+            }
+            // Chunks are padded to an even size; a missing pad byte at the very end is tolerated.
+            offset = body + chunkSize + (chunkSize & 1);
+        }
+        throw new IOException(file + ": no data chunk");
+    }
+
+    // A negative size is a length over 2 GB, which never fits in the byte[] we read.
+    private static void checkChunkSize(Path file, String chunk, int chunkSize, int remaining) throws IOException {
+        if (chunkSize < 0 || chunkSize > remaining) {
+            throw new IOException(file + ": " + chunk + " chunk size " + Integer.toUnsignedString(chunkSize)
+                    + " exceeds the " + remaining + " bytes left in the file");
+        }
+    }
+
+    private static String chunkIdString(int chunkId) {
+        char[] id = new char[4];
+        for (int i = 0; i < 4; i++) {
+            int c = (chunkId >>> (8 * i)) & 0xff;
+            id[i] = c >= 0x20 && c < 0x7f ? (char) c : '?';
+        }
+        return new String(id).trim();
+    }
+
+    private static short[] toSamples(ByteBuffer buffer, int offset, int length) {
+        short[] samples = new short[length / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = buffer.getShort(offset + i * 2);
+        }
+        return samples;
+    }
+}
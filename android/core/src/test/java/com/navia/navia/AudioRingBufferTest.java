@@ -0,0 +1,62 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AudioRingBufferTest {
+    private static final int FRAME = 4;
+
+    private static short[] frame(int value) {
+        short[] frame = new short[FRAME];
+        for (int i = 0; i < FRAME; i++) frame[i] = (short) (value * 10 + i);
+        return frame;
+    }
+
+    @Test
+    public void emptyBufferSnapshotsNothing() {
+        AudioRingBuffer ring = new AudioRingBuffer(FRAME, 3);
+        assertEquals(0, ring.snapshot(new short[ring.getCapacitySamples()]));
+    }
+
+    @Test
+    public void partialFillIsCopiedOldestFirst() {
+        AudioRingBuffer ring = new AudioRingBuffer(FRAME, 3);
+        ring.write(frame(1));
+        ring.write(frame(2));
+        short[] dest = new short[ring.getCapacitySamples()];
+        assertEquals(2 * FRAME, ring.snapshot(dest));
+        assertEquals(10, dest[0]);
+        assertEquals(20, dest[FRAME]);
+        assertEquals(23, dest[2 * FRAME - 1]);
+    }
+
+    @Test
+    public void wraparoundKeepsOnlyTheMostRecentFrames() {
+        AudioRingBuffer ring = new AudioRingBuffer(FRAME, 3);
+        // Slot count is capacity + guard frames, so 11 writes wrap the storage more than once.
+        for (int i = 1; i <= 11; i++) ring.write(frame(i));
+        short[] dest = new short[ring.getCapacitySamples()];
+        assertEquals(3 * FRAME, ring.snapshot(dest));
+        for (int f = 0; f < 3; f++) {
+            for (int i = 0; i < FRAME; i++) {
+                assertEquals((9 + f) * 10 + i, dest[f * FRAME + i]);
+            }
+        }
+        assertEquals(11, ring.getWriteSequence());
+    }
+
+    @Test
+    public void clearForgetsFrames() {
+        AudioRingBuffer ring = new AudioRingBuffer(FRAME, 3);
+        ring.write(frame(1));
+        ring.clear();
+        assertEquals(0, ring.snapshot(new short[ring.getCapacitySamples()]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortDestination() {
+        AudioRingBuffer ring = new AudioRingBuffer(FRAME, 3);
+        ring.snapshot(new short[ring.getCapacitySamples() - 1]);
+    }
+}
@@ -0,0 +1,159 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ConnectedRowScannerTest {
+
+    private static final class Node {
+        final String text;
+        final String viewId;
+        final boolean clickable;
+        final Node[] children;
+
+        Node(String text, String viewId, boolean clickable, Node... children) {
+            this.text = text;
+            this.viewId = viewId;
+            this.clickable = clickable;
+            this.children = children;
+        }
+    }
+
+    /** Counts obtained and released nodes the way AccessibilityNodeInfo would need them. */
+    private static final class CountingAdapter implements ConnectedRowScanner.NodeAdapter<Node> {
+        int outstanding = 0;
+
+        @Override
+        public CharSequence getText(Node node) {
+            return node.text;
+        }
+
+        @Override
+        public CharSequence getContentDescription(Node node) {
+            return null;
+        }
+
+        @Override
+        public String getViewId(Node node) {
+            return node.viewId;
+        }
+
+        @Override
+        public int getChildCount(Node node) {
+            return node.children.length;
+        }
+
+        @Override
+        public Node getChild(Node node, int index) {
+            outstanding++;
+            return node.children[index];
+        }
+
+        @Override
+        public boolean isClickable(Node node) {
+            return node.clickable;
+        }
+
+        @Override
+        public Node retain(Node node) {
+            outstanding++;
+            return node;
+        }
+
+        @Override
+        public void release(Node node) {
+            outstanding--;
+        }
+    }
+
+    private static Node row(String summary) {
+        return new Node(null, "row", true,
+                new Node("Home", "android:id/title", false),
+                new Node(summary, "android:id/summary", false));
+    }
+
+    private static Node settings(Node... rows) {
+        return new Node(null, null, false,
+                new Node("بالشبكة اللاسلكية متصل", "header", false),
+                new Node(null, "android:id/list", false, rows));
+    }
+
+    private static ConnectedRowScanner<Node> scanner(CountingAdapter adapter, int maxNodes, int maxDepth, int maxAncestor) {
+        return new ConnectedRowScanner<>(adapter, new ConnectedRowMatcher(), maxNodes, maxDepth, maxAncestor);
+    }
+
+    @Test
+    public void findsClickableRowAndSkipsSectionHeader() {
+        Node connected = row("Connected");
+        Node root = settings(row("Saved"), connected);
+        CountingAdapter adapter = new CountingAdapter();
+        ConnectedRowScanner<Node> scanner = scanner(adapter, 100, 10, 3);
+
+        assertSame(connected, scanner.scan(root));
+        assertEquals("android:id/summary", scanner.getLastMatchViewId());
+        assertEquals(1, scanner.getLastMatchDistance());
+        // Only the returned node is still held, and the caller releases it.
+        assertEquals(1, adapter.outstanding);
+    }
+
+    @Test
+    public void returnsNullAndReleasesEverythingWhenNothingMatches() {
+        CountingAdapter adapter = new CountingAdapter();
+        ConnectedRowScanner<Node> scanner = scanner(adapter, 100, 10, 3);
+
+        assertNull(scanner.scan(settings(row("Saved"), row("Saved"))));
+        assertNull(scanner.getLastMatchViewId());
+        assertEquals(-1, scanner.getLastMatchDistance());
+        assertEquals(0, adapter.outstanding);
+    }
+
+    @Test
+    public void stopsAtMaxNodes() {
+        CountingAdapter adapter = new CountingAdapter();
+        ConnectedRowScanner<Node> scanner = scanner(adapter, 5, 10, 3);
+
+        assertNull(scanner.scan(settings(row("Saved"), row("Connected"))));
+        assertEquals(5, scanner.getLastVisited());
+        assertEquals(0, adapter.outstanding);
+    }
+
+    @Test
+    public void doesNotDescendPastMaxDepth() {
+        CountingAdapter adapter = new CountingAdapter();
+        // The summary sits at depth 3: root > list > row > summary.
+        ConnectedRowScanner<Node> scanner = scanner(adapter, 100, 2, 3);
+
+        assertNull(scanner.scan(settings(row("Connected"))));
+        assertEquals(0, adapter.outstanding);
+    }
+
+    @Test
+    public void ignoresClickableAncestorBeyondMaxDistance() {
+        Node deep = new Node(null, "row", true,
+                new Node(null, null, false,
+                        new Node(null, null, false,
+                                new Node("Connected", "android:id/summary", false))));
+        CountingAdapter adapter = new CountingAdapter();
+        ConnectedRowScanner<Node> scanner = scanner(adapter, 100, 10, 1);
+
+        assertNull(scanner.scan(new Node(null, null, false, deep)));
+        assertEquals(0, adapter.outstanding);
+    }
+
+    @Test
+    public void fallsBackToClickableSibling() {
+        Node toggle = new Node(null, "toggle", true);
+        Node root = new Node(null, null, false,
+                new Node(null, "container", false,
+                        new Node("Connected", "android:id/summary", false),
+                        toggle));
+        CountingAdapter adapter = new CountingAdapter();
+        ConnectedRowScanner<Node> scanner = scanner(adapter, 100, 10, 0);
+
+        assertSame(toggle, scanner.scan(root));
+        assertEquals(1, adapter.outstanding);
+    }
+}
@@ -0,0 +1,110 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class EnergyVadGateTest {
+    private static final int FRAME = 8;
+    private static final int PRE_ROLL = 3;
+    private static final int HANGOVER = 2;
+
+    // Constant-amplitude frame; the first sample carries a tag so replay order can be checked.
+    private static short[] frame(int amplitude, int tag) {
+        short[] frame = new short[FRAME];
+        Arrays.fill(frame, (short) amplitude);
+        frame[0] = (short) tag;
+        return frame;
+    }
+
+    private static EnergyVadGate newGate() {
+        return new EnergyVadGate(FRAME, PRE_ROLL, HANGOVER, 2.0, 100);
+    }
+
+    @Test
+    public void silenceStaysGated() {
+        EnergyVadGate gate = newGate();
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, gate.offer(frame(20, 20)));
+        }
+        assertFalse(gate.isOpen());
+        assertEquals(1.0, gate.getGatedRatio(), 0);
+    }
+
+    @Test
+    public void openingReplaysPreRollOldestFirst() {
+        EnergyVadGate gate = newGate();
+        for (int i = 1; i <= 5; i++) {
+            gate.offer(frame(20, i));
+        }
+        int n = gate.offer(frame(2000, 6));
+        assertEquals(PRE_ROLL + 1, n);
+        // Last three gated frames, then the speech frame that opened the gate.
+        assertEquals(3, gate.frameAt(0)[0]);
+        assertEquals(4, gate.frameAt(1)[0]);
+        assertEquals(5, gate.frameAt(2)[0]);
+        assertEquals(6, gate.frameAt(3)[0]);
+    }
+
+    @Test
+    public void preRollOnlyReplaysFramesActuallyGated() {
+        EnergyVadGate gate = newGate();
+        gate.offer(frame(20, 1));
+        assertEquals(2, gate.offer(frame(2000, 2)));
+        assertEquals(1, gate.frameAt(0)[0]);
+        assertEquals(2, gate.frameAt(1)[0]);
+    }
+
+    @Test
+    public void hangoverKeepsGateOpenAfterSpeech() {
+        EnergyVadGate gate = newGate();
+        gate.offer(frame(20, 1));
+        gate.offer(frame(2000, 2));
+        for (int i = 0; i < HANGOVER; i++) {
+            assertEquals(1, gate.offer(frame(20, 3 + i)));
+        }
+        assertEquals(0, gate.offer(frame(20, 9)));
+        assertFalse(gate.isOpen());
+    }
+
+    @Test
+    public void everyFrameIsFedExactlyOnce() {
+        EnergyVadGate gate = newGate();
+        int fed = 0;
+        for (int i = 0; i < 40; i++) {
+            boolean speech = i % 10 == 9;
+            fed += gate.offer(frame(speech ? 2000 : 20, i));
+        }
+        assertEquals(fed, gate.getFramesPassed());
+        assertEquals(40, gate.getFramesPassed() + gate.getFramesGated());
+    }
+
+    @Test
+    public void quietSpeechBelowAbsoluteMinimumIsGated() {
+        EnergyVadGate gate = newGate();
+        gate.offer(frame(10, 1));
+        assertEquals(0, gate.offer(frame(90, 2)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void frameAtOutsideLastOfferThrows() {
+        EnergyVadGate gate = newGate();
+        gate.offer(frame(20, 1));
+        gate.frameAt(0);
+    }
+
+    @Test
+    public void resetDropsPreRollButKeepsFloor() {
+        EnergyVadGate gate = newGate();
+        for (int i = 0; i < 5; i++) gate.offer(frame(20, i));
+        double floor = gate.getNoiseFloor();
+        gate.reset();
+        assertEquals(floor, gate.getNoiseFloor(), 0);
+        assertEquals(1, gate.offer(frame(2000, 9)));
+        assertTrue(gate.isOpen());
+    }
+}
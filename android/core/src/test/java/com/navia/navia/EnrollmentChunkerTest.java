@@ -0,0 +1,58 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EnrollmentChunkerTest {
+
+    @Test
+    public void fillsChunkAcrossReads() {
+        EnrollmentChunker chunker = new EnrollmentChunker(10);
+        assertFalse(chunker.commit(4));
+        assertEquals(4, chunker.getFill());
+        assertEquals(6, chunker.getRemaining());
+        assertTrue(chunker.commit(6));
+        assertEquals(0, chunker.getFill());
+        assertEquals(10, chunker.getRemaining());
+        assertEquals(10, chunker.getTotalSamples());
+    }
+
+    @Test
+    public void reusesTheSameBuffer() {
+        EnrollmentChunker chunker = new EnrollmentChunker(4);
+        short[] buffer = chunker.getBuffer();
+        chunker.commit(4);
+        assertTrue(buffer == chunker.getBuffer());
+    }
+
+    @Test
+    public void zeroLengthReadIsAllowed() {
+        EnrollmentChunker chunker = new EnrollmentChunker(4);
+        assertFalse(chunker.commit(0));
+        assertEquals(0, chunker.getTotalSamples());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverfill() {
+        EnrollmentChunker chunker = new EnrollmentChunker(4);
+        chunker.commit(3);
+        chunker.commit(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCount() {
+        new EnrollmentChunker(4).commit(-1);
+    }
+
+    @Test
+    public void resetStartsOver() {
+        EnrollmentChunker chunker = new EnrollmentChunker(4);
+        chunker.commit(3);
+        chunker.reset();
+        assertEquals(0, chunker.getFill());
+        assertEquals(0, chunker.getTotalSamples());
+    }
+}
@@ -0,0 +1,55 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrameVerifierTest {
+    private static final int FRAME = 4;
+    // Same shape as the wake snapshot: 4 s of 512-sample frames at 16 kHz.
+    private static final int FRAMES = 125;
+
+    /** Scores each frame by its first sample, in thousandths. */
+    private static final class TaggedScorer implements FrameScorer<RuntimeException> {
+        @Override
+        public int getFrameLength() {
+            return FRAME;
+        }
+
+        @Override
+        public float score(short[] frame) {
+            return frame[0] / 1000f;
+        }
+    }
+
+    // Silence for all but the last {@code tailFrames}, which carry the owner's keyword.
+    private static short[] silenceThenKeyword(int tailFrames, int tailScore) {
+        short[] buffer = new short[FRAMES * FRAME];
+        for (int f = FRAMES - tailFrames; f < FRAMES; f++) {
+            buffer[f * FRAME] = (short) tailScore;
+        }
+        return buffer;
+    }
+
+    private static boolean verify(String policyName, short[] buffer) {
+        return new FrameVerifier(FRAME).verify(buffer, buffer.length, new TaggedScorer(),
+                VoiceScoringPolicy.create(policyName, 0.6f));
+    }
+
+    @Test
+    public void leadingSilenceDoesNotRejectOwner() {
+        short[] buffer = silenceThenKeyword(15, 900);
+        assertTrue(verify(VoiceScoringPolicy.MAX, buffer));
+        assertTrue(verify(VoiceScoringPolicy.TOP_K_MEAN, buffer));
+        assertTrue(verify(VoiceScoringPolicy.SEQUENTIAL, buffer));
+    }
+
+    @Test
+    public void strangerIsStillRejected() {
+        short[] buffer = silenceThenKeyword(15, 200);
+        assertFalse(verify(VoiceScoringPolicy.MAX, buffer));
+        assertFalse(verify(VoiceScoringPolicy.TOP_K_MEAN, buffer));
+        assertFalse(verify(VoiceScoringPolicy.SEQUENTIAL, buffer));
+    }
+}
@@ -0,0 +1,80 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void percentileIsUpperBoundOfReachingBucket() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("latency", 10, 20, 50);
+        for (int i = 0; i < 50; i++) histogram.record(5);
+        for (int i = 0; i < 45; i++) histogram.record(15);
+        for (int i = 0; i < 5; i++) histogram.record(40);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(20, histogram.percentile(95));
+        assertEquals(50, histogram.percentile(99));
+    }
+
+    @Test
+    public void bucketBoundsAreInclusive() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("latency", 10, 20);
+        histogram.record(10);
+        assertEquals(10, histogram.percentile(100));
+    }
+
+    @Test
+    public void overflowBucketReportsRecordedMax() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("latency", 10);
+        histogram.record(3);
+        histogram.record(250);
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(250, histogram.percentile(99));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry().histogram("latency", 10);
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedBounds() {
+        new MetricsRegistry().histogram("latency", 20, 10);
+    }
+
+    @Test
+    public void sameNameReturnsSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("wakes"), registry.counter("wakes"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sameNameDifferentTypeThrows() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("wakes");
+        registry.gauge("wakes");
+    }
+
+    @Test
+    public void snapshotAndResetCoverAllMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("b.count").add(3);
+        registry.gauge("a.gauge").set(7);
+
+        Map<String, Object> snapshot = registry.snapshot();
+        assertEquals("[a.gauge, b.count]", snapshot.keySet().toString());
+        assertEquals(3L, snapshot.get("b.count"));
+        assertEquals(7L, snapshot.get("a.gauge"));
+
+        registry.reset();
+        assertEquals(0, registry.counter("b.count").get());
+        assertEquals(0, registry.gauge("a.gauge").get());
+    }
+}
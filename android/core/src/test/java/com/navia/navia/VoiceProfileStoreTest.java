@@ -0,0 +1,165 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class VoiceProfileStoreTest {
+    private static final byte[] OWNER = {1, 2, 3, 4};
+    private static final byte[] GUEST = {9, 8, 7};
+
+    @Test
+    public void roundTripsAcrossInstances() throws IOException {
+        File dir = tempDir();
+        try {
+            VoiceProfileStore store = new VoiceProfileStore(dir);
+            store.put("owner", OWNER);
+            store.put("ضيف", GUEST);
+
+            Map<String, byte[]> reloaded = new VoiceProfileStore(dir).getProfiles();
+            assertEquals(Arrays.asList("owner", "ضيف"), Arrays.asList(reloaded.keySet().toArray()));
+            assertArrayEquals(OWNER, reloaded.get("owner"));
+            assertArrayEquals(GUEST, reloaded.get("ضيف"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void removeAndClearPersist() throws IOException {
+        File dir = tempDir();
+        try {
+            VoiceProfileStore store = new VoiceProfileStore(dir);
+            store.put("owner", OWNER);
+            store.put("guest", GUEST);
+            assertTrue(store.remove("guest"));
+            assertFalse(store.remove("guest"));
+            assertEquals(1, new VoiceProfileStore(dir).getProfiles().size());
+
+            store.clear();
+            assertTrue(new VoiceProfileStore(dir).isEmpty());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void checksumMismatchIsQuarantined() throws IOException {
+        File dir = tempDir();
+        try {
+            new VoiceProfileStore(dir).put("owner", OWNER);
+            File storeFile = new File(dir, "voice_profiles.bin");
+            try (RandomAccessFile raf = new RandomAccessFile(storeFile, "rw")) {
+                // أول بايت من بيانات الملف الشخصي، بعد الرأس والاسم وطوله.
+                long offset = 12 + 2 + "owner".length() + 4;
+                raf.seek(offset);
+                raf.write(raf.read() ^ 0xFF);
+            }
+
+            VoiceProfileStore store = new VoiceProfileStore(dir);
+            assertTrue(store.isEmpty());
+            assertNotNull(store.takeCorruptionReport());
+            assertNull(store.takeCorruptionReport());
+            assertTrue(new File(dir, "voice_profiles.bin.corrupt").exists());
+            assertFalse(storeFile.exists());
+
+            store.put("owner", GUEST);
+            assertArrayEquals(GUEST, new VoiceProfileStore(dir).getProfiles().get("owner"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void truncatedStoreIsQuarantined() throws IOException {
+        File dir = tempDir();
+        try {
+            Files.write(new File(dir, "voice_profiles.bin").toPath(), new byte[] {1, 2, 3});
+            VoiceProfileStore store = new VoiceProfileStore(dir);
+            assertTrue(store.isEmpty());
+            assertTrue(new File(dir, "voice_profiles.bin.corrupt").exists());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void migratesLegacySingleProfile() throws IOException {
+        File dir = tempDir();
+        try {
+            File legacy = new File(dir, "voice_profile.bin");
+            Files.write(legacy.toPath(), OWNER);
+
+            Map<String, byte[]> profiles = new VoiceProfileStore(dir).getProfiles();
+            assertEquals(1, profiles.size());
+            assertArrayEquals(OWNER, profiles.get(VoiceProfileStore.DEFAULT_SPEAKER));
+            assertFalse(legacy.exists());
+            assertArrayEquals(OWNER, new VoiceProfileStore(dir).getProfiles().get(VoiceProfileStore.DEFAULT_SPEAKER));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void rejectsNameLongerThanItsLengthPrefix() throws IOException {
+        File dir = tempDir();
+        try {
+            VoiceProfileStore store = new VoiceProfileStore(dir);
+            store.put("owner", OWNER);
+            char[] name = new char[VoiceProfileStore.MAX_NAME_BYTES + 1];
+            Arrays.fill(name, 'a');
+            try {
+                store.put(new String(name), GUEST);
+                throw new AssertionError("expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // The existing store is left untouched.
+            }
+            Map<String, byte[]> reloaded = new VoiceProfileStore(dir).getProfiles();
+            assertEquals(1, reloaded.size());
+            assertArrayEquals(OWNER, reloaded.get("owner"));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void acceptsNameAtTheLimit() throws IOException {
+        File dir = tempDir();
+        try {
+            char[] name = new char[VoiceProfileStore.MAX_NAME_BYTES];
+            Arrays.fill(name, 'a');
+            new VoiceProfileStore(dir).put(new String(name), OWNER);
+            assertArrayEquals(OWNER, new VoiceProfileStore(dir).getProfiles().get(new String(name)));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static File tempDir() throws IOException {
+        return Files.createTempDirectory("voice-profiles").toFile();
+    }
+
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+}
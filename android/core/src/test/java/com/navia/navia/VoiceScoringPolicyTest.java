@@ -0,0 +1,124 @@
+package com.navia.navia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class VoiceScoringPolicyTest {
+
+    @Test
+    public void maxAcceptsOnlyAboveThreshold() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, 0.6f);
+        assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0.6f));
+        assertFalse(policy.decide());
+        assertEquals(VoiceScoringPolicy.ACCEPT, policy.onScore(0.61f));
+    }
+
+    @Test
+    public void maxRejectsOnlyAfterTheWholeBudget() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, 0.6f);
+        policy.reset(125);
+        for (int i = 1; i < 125; i++) {
+            assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0f));
+        }
+        assertEquals(VoiceScoringPolicy.REJECT, policy.onScore(0f));
+    }
+
+    @Test
+    public void maxWithoutBudgetNeverRejectsEarly() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, 0.6f);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0f));
+        }
+        assertFalse(policy.decide());
+    }
+
+    @Test
+    public void maxKeepsListeningWhileNearTheFloor() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, 0.6f);
+        policy.reset(10);
+        policy.onScore(VoiceScoringPolicy.DEFAULT_EARLY_REJECT_FLOOR);
+        for (int i = 1; i < 20; i++) {
+            assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0f));
+        }
+    }
+
+    @Test
+    public void budgetDoesNotDelaySequentialReject() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.SEQUENTIAL, 0.6f, 1.5f, -1f);
+        policy.reset(125);
+        int frames = 0;
+        while (policy.onScore(0.2f) == VoiceScoringPolicy.UNDECIDED) frames++;
+        assertEquals(30, frames);
+    }
+
+    @Test
+    public void topKNeedsKFramesToAccept() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.TOP_K_MEAN, 0.6f);
+        assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0.9f));
+        assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0.9f));
+        assertEquals(VoiceScoringPolicy.ACCEPT, policy.onScore(0.9f));
+    }
+
+    @Test
+    public void topKAveragesTheHighestScores() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.TOP_K_MEAN, 0.6f);
+        policy.onScore(0.3f);
+        policy.onScore(0.9f);
+        policy.onScore(0f);
+        policy.onScore(0.3f);
+        assertEquals(0.5f, policy.aggregate(), 1e-6f);
+        assertFalse(policy.decide());
+    }
+
+    @Test
+    public void sequentialIgnoresSilence() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.SEQUENTIAL, 0.6f);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0.1f));
+        }
+        assertEquals(0f, policy.aggregate(), 0f);
+    }
+
+    @Test
+    public void sequentialHonoursCustomBounds() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.SEQUENTIAL, 0.5f, 0.5f, -3f);
+        assertEquals(VoiceScoringPolicy.UNDECIDED, policy.onScore(0.75f));
+        assertEquals(VoiceScoringPolicy.ACCEPT, policy.onScore(0.75f));
+    }
+
+    @Test
+    public void sequentialRejectsAtLowerBoundAfterMinimumFrames() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.SEQUENTIAL, 0.6f, 1.5f, -1f);
+        int decision = VoiceScoringPolicy.UNDECIDED;
+        int frames = 0;
+        while (decision == VoiceScoringPolicy.UNDECIDED && frames < 100) {
+            decision = policy.onScore(0.2f);
+            frames++;
+        }
+        assertEquals(VoiceScoringPolicy.REJECT, decision);
+        assertEquals(31, frames);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sequentialRejectsInvertedBounds() {
+        VoiceScoringPolicy.create(VoiceScoringPolicy.SEQUENTIAL, 0.6f, -1f, 1f);
+    }
+
+    @Test
+    public void unknownNameFallsBackToMax() {
+        assertTrue(VoiceScoringPolicy.create("nope", 0.6f) instanceof VoiceScoringPolicy.Max);
+        assertTrue(VoiceScoringPolicy.create(null, 0.6f) instanceof VoiceScoringPolicy.Max);
+    }
+
+    @Test
+    public void resetClearsState() {
+        VoiceScoringPolicy policy = VoiceScoringPolicy.create(VoiceScoringPolicy.MAX, 0.6f);
+        policy.onScore(0.9f);
+        policy.reset();
+        assertEquals(0, policy.getFrameCount());
+        assertFalse(policy.decide());
+    }
+}
@@ -23,6 +23,8 @@ plugins {
     id("com.google.gms.google-services") version("4.3.15") apply false
     // END: FlutterFire Configuration
     id("org.jetbrains.kotlin.android") version "2.1.0" apply false
+    id("me.champeau.jmh") version "0.7.2" apply false
 }
 
 include(":app")
+include(":core")
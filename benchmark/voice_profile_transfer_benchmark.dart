@@ -0,0 +1,87 @@
+// Compares sending an Eagle voice profile to native as List<int> (old path)
+// against Uint8List / raw ByteData (new nabd/voiceid paths).
+//
+// Run with: flutter test benchmark/voice_profile_transfer_benchmark.dart
+//
+// The codec work measured here is what the platform channel does on the Dart side;
+// the encoded size is what crosses the engine boundary and what the Java codec then
+// decodes (one boxed Integer per element for List<int>, one byte[] for Uint8List).
+import 'dart:math';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+const int _profileSize = 8 * 1024;
+const int _iterations = 2000;
+
+class _Result {
+  final String name;
+  final int encodedBytes;
+  final int decodedObjects;
+  final double microsPerCall;
+
+  _Result(this.name, this.encodedBytes, this.decodedObjects, this.microsPerCall);
+
+  @override
+  String toString() =>
+      '${name.padRight(22)} encoded=${encodedBytes.toString().padLeft(6)} B  '
+      'decoded objects=${decodedObjects.toString().padLeft(5)}  '
+      '${microsPerCall.toStringAsFixed(1).padLeft(7)} us/call';
+}
+
+_Result _measureMethodCall(String name, Object payload) {
+  const codec = StandardMethodCodec();
+  final call = MethodCall('saveVoiceProfile', {'voiceProfileBytes': payload});
+
+  final ByteData encoded = codec.encodeMethodCall(call);
+  final decoded = codec.decodeMethodCall(encoded).arguments as Map;
+  final value = decoded['voiceProfileBytes'];
+  final int objects = value is Uint8List ? 1 : (value as List).length;
+
+  final sw = Stopwatch()..start();
+  for (var i = 0; i < _iterations; i++) {
+    codec.decodeMethodCall(codec.encodeMethodCall(call));
+  }
+  sw.stop();
+  return _Result(name, encoded.lengthInBytes, objects, sw.elapsedMicroseconds / _iterations);
+}
+
+_Result _measureBinary(String name, Uint8List bytes) {
+  const codec = BinaryCodec();
+  final ByteData? encoded = codec.encodeMessage(ByteData.sublistView(bytes));
+
+  final sw = Stopwatch()..start();
+  for (var i = 0; i < _iterations; i++) {
+    codec.decodeMessage(codec.encodeMessage(ByteData.sublistView(bytes)));
+  }
+  sw.stop();
+  return _Result(name, encoded!.lengthInBytes, 1, sw.elapsedMicroseconds / _iterations);
+}
+
+void main() {
+  test('voice profile transfer: List<int> vs Uint8List vs binary channel', () {
+    final random = Random(42);
+    final Uint8List profile = Uint8List.fromList(
+      List<int>.generate(_profileSize, (_) => random.nextInt(256)),
+    );
+    final List<int> boxed = List<int>.from(profile);
+
+    // Warm up the codec paths before timing.
+    _measureMethodCall('warmup', boxed);
+    _measureMethodCall('warmup', profile);
+
+    final results = [
+      _measureMethodCall('List<int> (old)', boxed),
+      _measureMethodCall('Uint8List', profile),
+      _measureBinary('ByteData (binary)', profile),
+    ];
+    for (final r in results) {
+      // ignore: avoid_print
+      print(r);
+    }
+
+    expect(results[1].encodedBytes, lessThan(results[0].encodedBytes));
+    expect(results[1].decodedObjects, 1);
+  });
+}
@@ -4,7 +4,14 @@ import '../../injection_container.dart';
 
 const _platform = MethodChannel('nabd/foreground');
 
-Future<void> startBackgroundListening() async {
+/// [scoringPolicy] is one of `max`, `topk` or `sequential`; [acceptBound] and
+/// [rejectBound] only apply to `sequential`. Anything left null uses the native default.
+Future<void> startBackgroundListening({
+  String? scoringPolicy,
+  double? verifyThreshold,
+  double? acceptBound,
+  double? rejectBound,
+}) async {
   final String? picoVoiceAccessKey = sl<KeyManager>().picoVoiceAccessKey;
   if (picoVoiceAccessKey == null) {
     print("Error: PICOVOICE_ACCESS_KEY is not defined in the service locator.");
@@ -14,6 +21,10 @@ Future<void> startBackgroundListening() async {
   try {
     await _platform.invokeMethod('startService', {
       'apiKey': picoVoiceAccessKey,
+      if (scoringPolicy != null) 'scoringPolicy': scoringPolicy,
+      if (verifyThreshold != null) 'verifyThreshold': verifyThreshold,
+      if (acceptBound != null) 'acceptBound': acceptBound,
+      if (rejectBound != null) 'rejectBound': rejectBound,
     });
     print("Background service started successfully.");
   } on PlatformException catch (e) {
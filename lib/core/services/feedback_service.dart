@@ -69,4 +69,49 @@ class FeedbackService {
       print("Failed to play waiting tone: ${e.message}");
     }
   }
+
+  /// Plays a native cue ('success', 'failure', 'loading', 'waiting', 'tick') and/or a named
+  /// vibration pattern ('success', 'failure', 'tick', 'warning'). Fire-and-forget.
+  void playCue(String? cue, {String? vibration}) {
+    try {
+      _platform.invokeMethod('play', {'cue': cue, 'vibration': vibration});
+    } on PlatformException catch (e) {
+      print("Failed to play cue: ${e.message}");
+    }
+  }
+
+  /// Custom vibration: alternating off/on durations in milliseconds, starting with off.
+  void vibratePattern(List<int> timings) {
+    try {
+      _platform.invokeMethod('vibratePattern', {'timings': timings});
+    } on PlatformException catch (e) {
+      print("Failed to vibrate: ${e.message}");
+    }
+  }
+
+  /// Plays several steps back to back in one platform call; each step starts when the
+  /// previous cue ends plus its own pause.
+  void playSequence(List<FeedbackStep> steps) {
+    try {
+      _platform.invokeMethod('sequence', {
+        'steps': steps.map((s) => s.toMap()).toList(),
+      });
+    } on PlatformException catch (e) {
+      print("Failed to play sequence: ${e.message}");
+    }
+  }
+}
+
+class FeedbackStep {
+  final String? cue;
+  final String? vibration;
+  final int pauseMs;
+
+  const FeedbackStep({this.cue, this.vibration, this.pauseMs = 0});
+
+  Map<String, Object?> toMap() => {
+        'cue': cue,
+        'vibration': vibration,
+        'pauseMs': pauseMs,
+      };
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+import 'package:flutter/services.dart';
+
+/// Fixed-bucket histogram as exported by MetricsRegistry on the Android side.
+class MetricsHistogram {
+  final int count;
+  final int sum;
+  final int max;
+  final int p50;
+  final int p95;
+  final int p99;
+
+  /// Inclusive upper bounds; [counts] has one extra overflow bucket at the end.
+  final List<int> bounds;
+  final List<int> counts;
+
+  const MetricsHistogram({
+    required this.count,
+    required this.sum,
+    required this.max,
+    required this.p50,
+    required this.p95,
+    required this.p99,
+    required this.bounds,
+    required this.counts,
+  });
+
+  factory MetricsHistogram.fromMap(Map<dynamic, dynamic> map) {
+    return MetricsHistogram(
+      count: map['count'] as int? ?? 0,
+      sum: map['sum'] as int? ?? 0,
+      max: map['max'] as int? ?? 0,
+      p50: map['p50'] as int? ?? 0,
+      p95: map['p95'] as int? ?? 0,
+      p99: map['p99'] as int? ?? 0,
+      bounds: List<int>.from(map['bounds'] as List? ?? const []),
+      counts: List<int>.from(map['counts'] as List? ?? const []),
+    );
+  }
+
+  double get mean => count == 0 ? 0 : sum / count;
+}
+
+/// One read of the native counters, gauges and histograms, keyed by metric name
+/// (for example `wake.detected`, `verify.duration_ms`, `a11y.time_to_click_ms`).
+class MetricsSnapshot {
+  final Map<String, int> values;
+  final Map<String, MetricsHistogram> histograms;
+
+  const MetricsSnapshot(this.values, this.histograms);
+
+  factory MetricsSnapshot.fromMap(Map<dynamic, dynamic> map) {
+    final values = <String, int>{};
+    final histograms = <String, MetricsHistogram>{};
+    map.forEach((key, value) {
+      if (value is Map) {
+        histograms[key as String] = MetricsHistogram.fromMap(value);
+      } else if (value is int) {
+        values[key as String] = value;
+      }
+    });
+    return MetricsSnapshot(values, histograms);
+  }
+
+  int value(String name) => values[name] ?? 0;
+}
+
+class MetricsService {
+  static final MetricsService _instance = MetricsService._internal();
+
+  factory MetricsService() {
+    return _instance;
+  }
+
+  MetricsService._internal();
+
+  static const _platform = MethodChannel('navia/metrics');
+
+  Future<MetricsSnapshot> snapshot() async {
+    final map = await _platform.invokeMethod<Map<dynamic, dynamic>>('snapshot');
+    return MetricsSnapshot.fromMap(map ?? const {});
+  }
+
+  Future<void> reset() => _platform.invokeMethod<void>('reset');
+}
@@ -0,0 +1,63 @@
+import 'package:flutter/services.dart';
+
+/// Permission and service state reported by PermissionStatusMonitor on the Android side.
+class PlatformStatus {
+  final bool batteryOptimizationIgnored;
+  final bool overlayEnabled;
+  final bool accessibilityEnabled;
+  final bool accessibilityConnected;
+  final bool microphoneGranted;
+  final bool cameraGranted;
+
+  const PlatformStatus({
+    required this.batteryOptimizationIgnored,
+    required this.overlayEnabled,
+    required this.accessibilityEnabled,
+    required this.accessibilityConnected,
+    required this.microphoneGranted,
+    required this.cameraGranted,
+  });
+
+  factory PlatformStatus.fromMap(Map<dynamic, dynamic> map) {
+    return PlatformStatus(
+      batteryOptimizationIgnored: map['batteryOptimizationIgnored'] == true,
+      overlayEnabled: map['overlayEnabled'] == true,
+      accessibilityEnabled: map['accessibilityEnabled'] == true,
+      accessibilityConnected: map['accessibilityConnected'] == true,
+      microphoneGranted: map['microphoneGranted'] == true,
+      cameraGranted: map['cameraGranted'] == true,
+    );
+  }
+
+  /// The three settings the app cannot work without.
+  bool get requiredGranted =>
+      batteryOptimizationIgnored && overlayEnabled && accessibilityEnabled;
+}
+
+/// One round-trip status snapshot, plus a stream of changes pushed by the platform.
+class StatusService {
+  static final StatusService _instance = StatusService._internal();
+
+  factory StatusService() {
+    return _instance;
+  }
+
+  StatusService._internal();
+
+  static const _platform = MethodChannel('nabd/foreground');
+  static const _events = EventChannel('nabd/foreground/status');
+
+  Stream<PlatformStatus>? _changes;
+
+  Future<PlatformStatus> snapshot() async {
+    final map = await _platform.invokeMethod<Map<dynamic, dynamic>>(
+      'getStatusSnapshot',
+    );
+    return PlatformStatus.fromMap(map ?? const {});
+  }
+
+  /// Emits the current status on listen, then again whenever it changes.
+  Stream<PlatformStatus> get changes => _changes ??= _events
+      .receiveBroadcastStream()
+      .map((event) => PlatformStatus.fromMap(event as Map<dynamic, dynamic>));
+}
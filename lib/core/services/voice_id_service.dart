@@ -1,26 +1,73 @@
+import 'dart:async';
+
 import 'package:flutter/services.dart';
 
 const _platform = MethodChannel('nabd/voiceid');
 
+// Raw bytes in both directions; the native side receives a direct ByteBuffer.
+const _profileChannel = BasicMessageChannel<ByteData>(
+  'nabd/voiceid/profile',
+  BinaryCodec(),
+);
+
 class VoiceIdService {
-  Future<List<int>?> enrollVoice(String accessKey) async {
+  final StreamController<EnrollProgress> _enrollProgressController =
+      StreamController<EnrollProgress>.broadcast();
+
+  VoiceIdService() {
+    _platform.setMethodCallHandler(_handleNativeCall);
+  }
+
+  /// Enrollment percentage pushed by the native side while `enrollVoice` is recording.
+  Stream<EnrollProgress> get enrollProgress => _enrollProgressController.stream;
+
+  Future<dynamic> _handleNativeCall(MethodCall call) async {
+    if (call.method == 'onEnrollProgress') {
+      final args = Map<String, dynamic>.from(call.arguments as Map);
+      _enrollProgressController.add(
+        EnrollProgress(
+          percentage: (args['percentage'] as num).toDouble(),
+          feedback: args['feedback'] as String? ?? '',
+        ),
+      );
+    }
+    return null;
+  }
+
+  /// Enrolls [speakerName] (the account holder by default) without removing
+  /// other speakers already enrolled on this device.
+  Future<Uint8List?> enrollVoice(String accessKey, {String? speakerName}) async {
     try {
-      final List<dynamic>? fileBytes = await _platform.invokeMethod(
+      // The native byte[] arrives as a Uint8List; no per-element conversion needed.
+      return await _platform.invokeMethod<Uint8List>(
         'enrollVoice',
         {
           'accessKey': accessKey,
+          if (speakerName != null) 'speakerName': speakerName,
         },
       );
-      if (fileBytes != null) {
-        return fileBytes.cast<int>();
-      }
-      return null;
     } on PlatformException catch (e) {
       print("Failed to enroll voice: '${e.message}'.");
       return null;
     }
   }
 
+  /// Sends the Eagle profile to native storage over the binary channel.
+  Future<bool> saveVoiceProfile(List<int> voiceProfileBytes) async {
+    final Uint8List bytes = voiceProfileBytes is Uint8List
+        ? voiceProfileBytes
+        : Uint8List.fromList(voiceProfileBytes);
+    try {
+      final ByteData? reply = await _profileChannel.send(
+        ByteData.sublistView(bytes),
+      );
+      return reply != null && reply.lengthInBytes > 0 && reply.getUint8(0) == 1;
+    } on PlatformException catch (e) {
+      print("Failed to save voice profile: '${e.message}'.");
+      return false;
+    }
+  }
+
   Future<void> resetEnrollment() async {
     try {
       await _platform.invokeMethod('resetEnrollment');
@@ -29,6 +76,28 @@ class VoiceIdService {
     }
   }
 
+  Future<List<String>> listSpeakers() async {
+    try {
+      final speakers = await _platform.invokeListMethod<String>('listSpeakers');
+      return speakers ?? const [];
+    } on PlatformException catch (e) {
+      print("Failed to list speakers: '${e.message}'.");
+      return const [];
+    }
+  }
+
+  Future<bool> removeSpeaker(String speakerName) async {
+    try {
+      final bool? removed = await _platform.invokeMethod('removeSpeaker', {
+        'speakerName': speakerName,
+      });
+      return removed ?? false;
+    } on PlatformException catch (e) {
+      print("Failed to remove speaker: '${e.message}'.");
+      return false;
+    }
+  }
+
   Future<bool> isProfileEnrolled() async {
     try {
       final bool? isEnrolled = await _platform.invokeMethod('isProfileEnrolled');
@@ -39,3 +108,10 @@ class VoiceIdService {
     }
   }
 }
+
+class EnrollProgress {
+  final double percentage;
+  final String feedback;
+
+  const EnrollProgress({required this.percentage, required this.feedback});
+}
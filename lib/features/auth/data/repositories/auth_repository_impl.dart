@@ -123,7 +123,9 @@ class AuthRepositoryImpl implements AuthRepository {
     try {
       const platform = MethodChannel('nabd/voiceid');
       await platform.invokeMethod('saveVoiceProfile', {
-        'voiceProfileBytes': voiceProfileBytes,
+        'voiceProfileBytes': voiceProfileBytes is Uint8List
+            ? voiceProfileBytes
+            : Uint8List.fromList(voiceProfileBytes),
       });
     } catch (e) {
       print('Failed to save voice profile to native: $e');
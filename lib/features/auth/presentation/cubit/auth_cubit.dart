@@ -1,3 +1,5 @@
+import 'dart:async';
+
 import 'package:equatable/equatable.dart';
 import 'package:flutter_bloc/flutter_bloc.dart';
 import 'package:flutter/services.dart';
@@ -261,12 +263,25 @@ class AuthCubit extends Cubit<AuthState> {
 
       final String accessKey = sl<KeyManager>().picoVoiceAccessKey;
 
-      final voiceProfileBytes = await voiceIdService.enrollVoice(accessKey);
+      // نسبة التسجيل تصل من الجهة الأصلية أثناء الكلام.
+      final StreamSubscription<EnrollProgress> progress = voiceIdService
+          .enrollProgress
+          .listen((p) {
+            emit(
+              VoiceIdEnrollmentProgress(
+                percentage: p.percentage,
+                feedback: p.feedback,
+              ),
+            );
+          });
+      final voiceProfileBytes = await voiceIdService
+          .enrollVoice(accessKey)
+          .whenComplete(progress.cancel);
 
       if (voiceProfileBytes != null) {
         final voiceProfileUrl = await uploadVoiceProfileUsecase(
           user.uid,
-          Uint8List.fromList(voiceProfileBytes),
+          voiceProfileBytes,
         );
 
         await signup(_userName ?? 'N/A', voiceProfileUrl);
@@ -374,10 +389,7 @@ class AuthCubit extends Cubit<AuthState> {
   // Save voice profile to native Java code for background service access
   Future<void> _saveVoiceProfileToNative(List<int> voiceProfileBytes) async {
     try {
-      const platform = MethodChannel('nabd/voiceid');
-      await platform.invokeMethod('saveVoiceProfile', {
-        'voiceProfileBytes': voiceProfileBytes,
-      });
+      await voiceIdService.saveVoiceProfile(voiceProfileBytes);
     } catch (e) {
       print('Failed to save voice profile to native: $e');
     }
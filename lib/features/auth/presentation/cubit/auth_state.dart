@@ -93,6 +93,19 @@ class AuthSpeechComplete extends AuthState {
 
 class VoiceIdEnrollmentStarted extends AuthState {}
 
+class VoiceIdEnrollmentProgress extends AuthState {
+  final double percentage;
+  final String feedback;
+
+  const VoiceIdEnrollmentProgress({
+    required this.percentage,
+    required this.feedback,
+  });
+
+  @override
+  List<Object> get props => [percentage, feedback];
+}
+
 class VoiceIdEnrollmentComplete extends AuthState {
   final String message;
   final String voiceProfileUrl;
@@ -1,10 +1,7 @@
 import 'dart:async';
-import 'dart:convert';
-import 'package:camera/camera.dart';
-import 'package:web_socket_channel/web_socket_channel.dart';
-import 'package:web_socket_channel/io.dart';
 
-import 'yuv_to_jpeg_converter.dart';
+import 'package:flutter/services.dart';
+import 'package:permission_handler/permission_handler.dart';
 
 typedef GuidanceCallback =
     void Function({
@@ -14,167 +11,127 @@ typedef GuidanceCallback =
       required bool ready,
     });
 
+/// Guidance streaming backed by the native engine (GuidanceStreamEngine.java).
+///
+/// The camera, JPEG encoding and the WebSocket all live on the Android side; frames never
+/// cross the platform channel. Dart only receives the preview texture and guidance results.
 class GuidanceService {
+  static const MethodChannel _channel = MethodChannel('navia/guidance');
+
   final String serverUrl;
   final int targetFps;
+  final int analysisWidth;
+  final int analysisHeight;
+  final int jpegQuality;
 
-  CameraController? _camera;
-  WebSocketChannel? _channel;
-  StreamSubscription? _wsSub;
-  Timer? _hbTimer;
-  bool _connected = false;
-
-  bool _isProcessing = false;
-  int _lastSentMs = 0;
-
-  int get _minGapMs => (1000 ~/ targetFps);
-  int _seq = 0;
+  /// Round trip (frame sent to guidance received) the native controller aims for. It lowers
+  /// fps, quality and resolution when the link is slower, and idles on static scenes.
+  final int targetLatencyMs;
 
-  bool _isStreaming = false;
-
-  GuidanceService({required this.serverUrl, this.targetFps = 20});
+  bool _connected = false;
+  int? _textureId;
+  int _previewWidth = 0;
+  int _previewHeight = 0;
+  int _rotationDegrees = 0;
+
+  GuidanceCallback? _onGuidance;
+  Function(String)? _onError;
+
+  GuidanceService({
+    required this.serverUrl,
+    this.targetFps = 20,
+    this.analysisWidth = 1280,
+    this.analysisHeight = 720,
+    this.jpegQuality = 80,
+    this.targetLatencyMs = 250,
+  });
 
   Future<void> start({
     required GuidanceCallback onGuidance,
     required Function(String) onError,
   }) async {
+    _onGuidance = onGuidance;
+    _onError = onError;
+    _channel.setMethodCallHandler(_handleNativeCall);
     try {
-      final cameras = await availableCameras();
-      _camera = CameraController(
-        cameras.firstWhere(
-          (c) => c.lensDirection == CameraLensDirection.back,
-          orElse: () => cameras.first,
-        ),
-        ResolutionPreset.max,
-        imageFormatGroup: ImageFormatGroup.yuv420,
-        enableAudio: false,
-      );
-      await _camera!.initialize();
-
-      try {
-        await _camera!.setFocusMode(FocusMode.auto);
-      } catch (_) {}
-      try {
-        await _camera!.setExposureMode(ExposureMode.auto);
-      } catch (_) {}
-
-      try {
-        final minZoom = await _camera!.getMinZoomLevel();
-        await _camera!.setZoomLevel(minZoom);
-      } catch (_) {}
-
-      try {
-        await _camera!.setFlashMode(FlashMode.torch);
-      } catch (_) {}
-
-      _channel = IOWebSocketChannel.connect(Uri.parse(serverUrl));
-      _wsSub = _channel!.stream.listen(
-        (data) {
-          try {
-            final m = jsonDecode(data.toString()) as Map<String, dynamic>;
-            if (m['type'] == 'guidance') {
-              onGuidance(
-                direction: (m['class'] as String?) ?? 'no_document',
-                coverage: (m['coverage'] ?? 0.0).toDouble(),
-                confidence: (m['conf'] ?? 0.0).toDouble(),
-                ready: (m['ready'] ?? false) == true,
-              );
-            } else if (m['type'] == 'hb') {
-              // heartbeat from server; do nothing (keeps connection alive)
-            }
-          } catch (_) {}
-        },
-        onError: (e) {
-          onError('WebSocket error: $e');
-          _connected = false;
-        },
-        onDone: () {
-          onError('WebSocket closed');
-          _connected = false;
-        },
-      );
-
-      _connected = true;
-      _startHeartbeat();
-
-      _isStreaming = true;
-      await _camera!.startImageStream(_onFrame);
+      final status = await Permission.camera.request();
+      if (!status.isGranted) {
+        onError('Start failed: camera permission denied');
+        return;
+      }
+      final info = await _channel.invokeMapMethod<String, dynamic>('start', {
+        'url': serverUrl,
+        'targetFps': targetFps,
+        'analysisWidth': analysisWidth,
+        'analysisHeight': analysisHeight,
+        'jpegQuality': jpegQuality,
+        'targetLatencyMs': targetLatencyMs,
+        'torch': true,
+      });
+      if (info != null) {
+        _textureId = info['textureId'] as int?;
+        _previewWidth = info['previewWidth'] as int? ?? 0;
+        _previewHeight = info['previewHeight'] as int? ?? 0;
+        _rotationDegrees = info['rotationDegrees'] as int? ?? 0;
+      }
+    } on PlatformException catch (e) {
+      onError('Start failed: ${e.message}');
     } catch (e) {
       onError('Start failed: $e');
     }
   }
 
-  Future<void> pauseStreaming() async {
-    if (_camera?.value.isStreamingImages == true) {
-      await _camera!.stopImageStream();
+  Future<void> _handleNativeCall(MethodCall call) async {
+    switch (call.method) {
+      case 'onGuidance':
+        final m = Map<String, dynamic>.from(call.arguments as Map);
+        _onGuidance?.call(
+          direction: (m['direction'] as String?) ?? 'no_document',
+          coverage: (m['coverage'] ?? 0.0).toDouble(),
+          confidence: (m['confidence'] ?? 0.0).toDouble(),
+          ready: m['ready'] == true,
+        );
+        break;
+      case 'onConnectionChanged':
+        _connected = call.arguments == true;
+        break;
+      case 'onError':
+        _connected = false;
+        _onError?.call(call.arguments as String? ?? 'WebSocket error');
+        break;
     }
-    _isStreaming = false;
   }
 
-  Future<void> resumeStreaming() async {
-    if (_camera != null && _camera!.value.isInitialized && !_isStreaming) {
-      await _camera!.startImageStream(_onFrame);
-      _isStreaming = true;
-    }
+  Future<void> pauseStreaming() async {
+    try {
+      await _channel.invokeMethod('pause');
+    } catch (_) {}
   }
 
-  Future<void> stop() async {
+  Future<void> resumeStreaming() async {
     try {
-      try {
-        await _camera?.setFlashMode(FlashMode.off);
-      } catch (_) {}
-      if (_camera?.value.isStreamingImages == true) {
-        await _camera?.stopImageStream();
-      }
+      await _channel.invokeMethod('resume');
     } catch (_) {}
-    _hbTimer?.cancel();
-    _wsSub?.cancel();
-    _channel?.sink.close();
-    _channel = null;
-    await _camera?.dispose();
-    _camera = null;
-    _connected = false;
   }
 
-  Future<void> _onFrame(CameraImage image) async {
-    final now = DateTime.now().millisecondsSinceEpoch;
-    if (_channel == null) return;
-    if (_isProcessing) return;
-    if (now - _lastSentMs < _minGapMs) return;
-    _isProcessing = true;
+  Future<void> stop() async {
     try {
-      final jpeg = await YuvToJpegConverter.convert(image, 80);
-      if (jpeg.isNotEmpty && _channel != null) {
-        _seq += 1;
-        final meta = {
-          'type': 'frame_meta',
-          'seq': _seq,
-          'ts': DateTime.now().millisecondsSinceEpoch,
-          'w': image.width,
-          'h': image.height,
-          'rotation_degrees': 0,
-          'jpeg_quality': 80,
-        };
-        _channel!.sink.add(jsonEncode(meta));
-        _channel!.sink.add(jpeg);
-        _lastSentMs = now;
-      }
+      await _channel.invokeMethod('stop');
     } catch (_) {}
-    _isProcessing = false;
+    _channel.setMethodCallHandler(null);
+    _textureId = null;
+    _connected = false;
   }
 
-  CameraController? get cameraController => _camera;
+  /// Flutter texture showing the camera preview, null until the camera is bound.
+  int? get previewTextureId => _textureId;
 
-  bool get isConnected => _connected;
+  /// Preview buffer aspect ratio (width / height) in sensor orientation.
+  double get previewAspectRatio =>
+      _previewHeight == 0 ? 1.0 : _previewWidth / _previewHeight;
 
-  void _startHeartbeat() {
-    _hbTimer?.cancel();
-    _hbTimer = Timer.periodic(const Duration(seconds: 5), (_) {
-      try {
-        if (_channel != null) {
-          _channel!.sink.add(jsonEncode({'type': 'hb'}));
-        }
-      } catch (_) {}
-    });
-  }
+  /// Clockwise quarter turns needed to show the preview upright.
+  int get previewQuarterTurns => _rotationDegrees ~/ 90;
+
+  bool get isConnected => _connected;
 }
@@ -1,6 +1,5 @@
 import 'package:flutter/material.dart';
 import 'package:flutter_bloc/flutter_bloc.dart';
-import 'package:camera/camera.dart';
 import '../cubit/stream_ws_cubit.dart';
 import '../cubit/stream_ws_state.dart';
 import '../../data/guidance_service.dart';
@@ -144,12 +143,14 @@ class _GuidanceScreenState extends State<GuidanceScreen> {
               return Stack(
                 fit: StackFit.expand,
                 children: [
-                  if (_service.cameraController != null)
+                  if (_service.previewTextureId != null)
                     Center(
-                      child: AspectRatio(
-                        aspectRatio:
-                            1 / _service.cameraController!.value.aspectRatio,
-                        child: CameraPreview(_service.cameraController!),
+                      child: RotatedBox(
+                        quarterTurns: _service.previewQuarterTurns,
+                        child: AspectRatio(
+                          aspectRatio: _service.previewAspectRatio,
+                          child: Texture(textureId: _service.previewTextureId!),
+                        ),
                       ),
                     ),
                   Center(
@@ -93,6 +93,19 @@ class _SignupVoiceScreenState extends State<SignupVoiceScreen> {
                   builder: (context, state) {
                     if (state is VoiceIdEnrollmentStarted) {
                       return const CircularProgressIndicator();
+                    } else if (state is VoiceIdEnrollmentProgress) {
+                      return Column(
+                        children: [
+                          CircularProgressIndicator(
+                            value: (state.percentage / 100).clamp(0.0, 1.0),
+                          ),
+                          const SizedBox(height: 10),
+                          Text(
+                            '${state.percentage.round()}%',
+                            style: textTheme.bodyMedium,
+                          ),
+                        ],
+                      );
                     } else if (state is VoiceIdEnrollmentComplete) {
                       return Column(
                         children: [
@@ -4,6 +4,7 @@ import 'package:flutter_bloc/flutter_bloc.dart';
 import '../../../../l10n/app_localizations.dart';
 
 import '../../../core/services/feedback_service.dart';
+import '../../../core/services/status_service.dart';
 import '../../../core/theme/app_theme.dart';
 import '../../auth/presentation/cubit/auth_cubit.dart';
 import '../../login/presentation/phone_number_screen.dart';
@@ -39,9 +40,17 @@ class PermissionsScreen extends StatelessWidget {
 
   Future<void> _requestPermissions(BuildContext context) async {
     try {
-      await _platform.invokeMethod('requestBatteryOptimization');
-      await _platform.invokeMethod('requestOverlayPermission');
-      await _platform.invokeMethod('requestAccessibilityPermission');
+      // نطلب فقط ما هو مفقود فعلاً حسب آخر لقطة للحالة.
+      final status = await StatusService().snapshot();
+      if (!status.batteryOptimizationIgnored) {
+        await _platform.invokeMethod('requestBatteryOptimization');
+      }
+      if (!status.overlayEnabled) {
+        await _platform.invokeMethod('requestOverlayPermission');
+      }
+      if (!status.accessibilityEnabled) {
+        await _platform.invokeMethod('requestAccessibilityPermission');
+      }
       FeedbackService().playSuccessTone();
 
       _handleNavigation(context);
@@ -2,6 +2,7 @@ import 'package:flutter/material.dart';
 import 'package:flutter/rendering.dart';
 import 'package:flutter_bloc/flutter_bloc.dart';
 import 'package:navia/core/services/feedback_service.dart';
+import 'package:navia/core/services/status_service.dart';
 import 'package:navia/features/auth/presentation/cubit/auth_cubit.dart';
 import 'package:flutter/services.dart';
 import '../../../../l10n/app_localizations.dart';
@@ -11,8 +12,6 @@ import '../../login/presentation/phone_number_screen.dart';
 import 'permissions_screen.dart';
 import 'package:navia/core/theme/app_theme.dart';
 
-const _platform = MethodChannel('nabd/foreground');
-
 class SplashScreen extends StatefulWidget {
   const SplashScreen({super.key});
 
@@ -109,15 +108,10 @@ class _SplashScreenState extends State<SplashScreen>
 
   Future<void> checkPermissionsAndNavigate() async {
     try {
-      final isBatteryIgnored = await _platform.invokeMethod(
-        'isIgnoringBatteryOptimizations',
-      );
-      final isOverlayEnabled = await _platform.invokeMethod('isOverlayEnabled');
-      final isAccessibilityEnabled = await _platform.invokeMethod(
-        'isAccessibilityEnabled',
-      );
-
-      if (isBatteryIgnored && isOverlayEnabled && isAccessibilityEnabled) {
+      // لقطة واحدة لكل الأذونات بدلاً من ثلاث استدعاءات متتالية.
+      final status = await StatusService().snapshot();
+
+      if (status.requiredGranted) {
         context.read<AuthCubit>().checkAuthStatus();
       } else {
         FeedbackService().playFailureTone();